@@ -0,0 +1,343 @@
+package org.example;
+
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.index.navigable.NavigableIndex;
+import com.googlecode.cqengine.index.radix.RadixTreeIndex;
+import com.googlecode.cqengine.index.suffix.SuffixTreeIndex;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.logical.LogicalQuery;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.simple.*;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.resultset.common.WrappedResultSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import static com.googlecode.cqengine.query.QueryFactory.noQueryOptions;
+
+/**
+ * Runs queries against an {@link IndexedCollection} and indexes the attributes they keep scanning.
+ * <p>
+ * Every query is broken into its shapes: the attribute and kind of comparison of each simple query in it.
+ * Per shape it counts queries and sums the time from {@link #retrieve} until the result set is closed.
+ * Every {@code rebalanceEvery} queries it looks at the shapes seen in at least 5% of them,
+ * hottest first. A shape is indexed if CQEngine would still answer it with a full scan and a uniform sample of
+ * the collection shows it selects at most {@code maxSelectivity} of the objects (an index returning most of the
+ * collection is slower than the scan). Indexes added this way are dropped again after {@code idleRounds}
+ * rebalances without a query needing them; indexes added by anyone else are never touched.
+ * <p>
+ * Rebalancing runs on a background thread, so the query that closes a window does not pay for building
+ * indexes. Indexes are only added or removed while no result set from {@link #retrieve} is open, so a query
+ * never iterates an index that is being filled or cleared. A result set that is never closed therefore stops
+ * rebalancing; {@link #close} stops the background thread.
+ */
+public class AdaptiveIndexer<O> implements AutoCloseable {
+
+    static final double HOT_SHARE = 0.05;
+    static final int SELECTIVITY_SAMPLE = 1024;
+
+    public enum Kind {
+        /** {@code equal} and {@code in}, served by a {@link HashIndex}. */
+        EQUALITY,
+        /** {@code lessThan}, {@code greaterThan} and {@code between}, served by a {@link NavigableIndex}. */
+        RANGE,
+        /** {@code startsWith}, served by a {@link RadixTreeIndex}. */
+        PREFIX,
+        /** {@code contains} and {@code endsWith}, served by a {@link SuffixTreeIndex}. */
+        SUBSTRING
+    }
+
+    public record Shape(String attribute, Kind kind) {
+    }
+
+    /**
+     * Figures for one shape over the last completed rebalance window.
+     *
+     * @param selectivity sampled share of the collection matched by the shape, {@code NaN} until sampled
+     */
+    public record ShapeStatistics(Shape shape, long queries, long totalNanos, double selectivity, boolean indexed) {
+
+        public double averageMillis() {
+            return queries == 0 ? 0 : totalNanos / 1e6 / queries;
+        }
+    }
+
+    private final IndexedCollection<O> collection;
+    private final int rebalanceEvery;
+    private final double maxSelectivity;
+    private final int idleRounds;
+    private final Map<Shape, Tracker<O>> trackers = new ConcurrentHashMap<>();
+    private final AtomicLong queryCount = new AtomicLong();
+    private final LongAdder windowQueries = new LongAdder();
+    // Read-locked by every open result set, write-locked to change the indexes; read stamps may be
+    // released by a thread other than the one that took them
+    private final StampedLock indexLock = new StampedLock();
+    private final AtomicBoolean rebalanceQueued = new AtomicBoolean();
+    private final ExecutorService rebalancer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "adaptive-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AdaptiveIndexer(IndexedCollection<O> collection) {
+        this(collection, 1_000, 0.2, 3);
+    }
+
+    public AdaptiveIndexer(IndexedCollection<O> collection, int rebalanceEvery, double maxSelectivity, int idleRounds) {
+        if (rebalanceEvery <= 0 || idleRounds <= 0) {
+            throw new IllegalArgumentException("rebalanceEvery and idleRounds must be positive");
+        }
+        this.collection = collection;
+        this.rebalanceEvery = rebalanceEvery;
+        this.maxSelectivity = maxSelectivity;
+        this.idleRounds = idleRounds;
+    }
+
+    public IndexedCollection<O> collection() {
+        return collection;
+    }
+
+    public ResultSet<O> retrieve(Query<O> query) {
+        return retrieve(query, noQueryOptions());
+    }
+
+    public ResultSet<O> retrieve(Query<O> query, QueryOptions queryOptions) {
+        Set<Tracker<O>> shapes = new HashSet<>();
+        collectShapes(query, shapes);
+        for (Tracker<O> tracker : shapes) {
+            tracker.queries.increment();
+        }
+        windowQueries.increment();
+        if (queryCount.incrementAndGet() % rebalanceEvery == 0) {
+            scheduleRebalance();
+        }
+
+        long stamp = indexLock.readLock();
+        long start = System.nanoTime();
+        ResultSet<O> results;
+        try {
+            results = collection.retrieve(query, queryOptions);
+        } catch (RuntimeException e) {
+            indexLock.unlockRead(stamp);
+            throw e;
+        }
+        return new WrappedResultSet<>(results) {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                super.close();
+                if (!closed) {
+                    closed = true;
+                    long elapsed = System.nanoTime() - start;
+                    indexLock.unlockRead(stamp);
+                    for (Tracker<O> tracker : shapes) {
+                        tracker.nanos.add(elapsed);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Closes the current window: adds indexes for hot shapes still scanning and drops idle ones. Runs
+     * on the background thread every {@code rebalanceEvery} queries; a caller running it directly must not
+     * hold an open result set from this indexer, or it waits for itself.
+     */
+    public synchronized void rebalance() {
+        long window = windowQueries.sumThenReset();
+        if (window == 0) {
+            return;
+        }
+        for (Tracker<O> tracker : trackers.values()) {
+            tracker.lastQueries = tracker.queries.sumThenReset();
+            tracker.lastNanos = tracker.nanos.sumThenReset();
+        }
+
+        List<Tracker<O>> hottest = new ArrayList<>(trackers.values());
+        hottest.sort(Comparator.comparingLong((Tracker<O> tracker) -> tracker.lastNanos).reversed());
+        for (Tracker<O> tracker : hottest) {
+            boolean hot = tracker.lastQueries > 0 && tracker.lastQueries >= HOT_SHARE * window;
+            if (tracker.index != null || !hot || !scans(tracker.example)) {
+                continue;
+            }
+            tracker.selectivity = sampleSelectivity(tracker.example);
+            if (!(tracker.selectivity <= maxSelectivity)) {
+                continue;
+            }
+            Index<O> index = createIndex(tracker);
+            if (collection.getPersistence().supportsIndex(index)) {
+                long stamp = indexLock.writeLock();
+                try {
+                    collection.addIndex(index);
+                } finally {
+                    indexLock.unlockWrite(stamp);
+                }
+                tracker.index = index;
+                tracker.idle = 0;
+            }
+        }
+
+        for (Tracker<O> tracker : trackers.values()) {
+            if (tracker.index == null) {
+                continue;
+            }
+            tracker.idle = tracker.lastQueries == 0 ? tracker.idle + 1 : 0;
+            if (tracker.idle >= idleRounds) {
+                long stamp = indexLock.writeLock();
+                try {
+                    collection.removeIndex(tracker.index);
+                } finally {
+                    indexLock.unlockWrite(stamp);
+                }
+                tracker.index = null;
+            }
+        }
+    }
+
+    /**
+     * Stops the background rebalancing. Indexes already added stay in the collection.
+     */
+    @Override
+    public void close() {
+        rebalancer.shutdown();
+    }
+
+    /**
+     * Waits until every rebalance scheduled so far has run.
+     */
+    void awaitRebalance() throws InterruptedException, ExecutionException {
+        rebalancer.submit(() -> { }).get();
+    }
+
+    // A window closing while the previous rebalance still waits to start is folded into it
+    private void scheduleRebalance() {
+        if (rebalanceQueued.compareAndSet(false, true)) {
+            rebalancer.execute(() -> {
+                rebalanceQueued.set(false);
+                rebalance();
+            });
+        }
+    }
+
+    public synchronized List<ShapeStatistics> statistics() {
+        List<ShapeStatistics> statistics = new ArrayList<>();
+        for (Map.Entry<Shape, Tracker<O>> entry : trackers.entrySet()) {
+            Tracker<O> tracker = entry.getValue();
+            statistics.add(new ShapeStatistics(entry.getKey(), tracker.lastQueries, tracker.lastNanos,
+                    tracker.selectivity, tracker.index != null));
+        }
+        statistics.sort(Comparator.comparingLong(ShapeStatistics::totalNanos).reversed());
+        return statistics;
+    }
+
+    private void collectShapes(Query<O> query, Set<Tracker<O>> shapes) {
+        if (query instanceof LogicalQuery<O> logical) {
+            for (Query<O> child : logical.getChildQueries()) {
+                collectShapes(child, shapes);
+            }
+        } else if (query instanceof SimpleQuery<O, ?> simple) {
+            Kind kind = kindOf(simple);
+            if (kind != null) {
+                Attribute<O, ?> attribute = simple.getAttribute();
+                Tracker<O> tracker = trackers.computeIfAbsent(new Shape(attribute.getAttributeName(), kind),
+                        shape -> new Tracker<>(attribute, kind));
+                tracker.example = simple;
+                shapes.add(tracker);
+            }
+        }
+    }
+
+    private static Kind kindOf(SimpleQuery<?, ?> query) {
+        if (query instanceof Equal || query instanceof In) {
+            return Kind.EQUALITY;
+        } else if (query instanceof LessThan || query instanceof GreaterThan || query instanceof Between) {
+            return Kind.RANGE;
+        } else if (query instanceof StringStartsWith) {
+            return Kind.PREFIX;
+        } else if (query instanceof StringContains || query instanceof StringEndsWith) {
+            return Kind.SUBSTRING;
+        }
+        return null;
+    }
+
+    // CQEngine gives a query no index can answer the highest retrieval cost
+    private boolean scans(Query<O> query) {
+        try (ResultSet<O> results = collection.retrieve(query)) {
+            return results.getRetrievalCost() == Integer.MAX_VALUE;
+        }
+    }
+
+    // Reservoir sample of the whole collection: iteration order follows the storage, not the data,
+    // so the first objects iterated can be all of one make or year
+    private double sampleSelectivity(SimpleQuery<O, ?> query) {
+        List<O> sample = new ArrayList<>(SELECTIVITY_SAMPLE);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long seen = 0;
+        for (O object : collection) {
+            seen++;
+            if (sample.size() < SELECTIVITY_SAMPLE) {
+                sample.add(object);
+            } else {
+                long slot = random.nextLong(seen);
+                if (slot < SELECTIVITY_SAMPLE) {
+                    sample.set((int) slot, object);
+                }
+            }
+        }
+        if (sample.isEmpty()) {
+            return Double.NaN;
+        }
+        int matched = 0;
+        QueryOptions queryOptions = noQueryOptions();
+        for (O object : sample) {
+            if (query.matches(object, queryOptions)) {
+                matched++;
+            }
+        }
+        return (double) matched / sample.size();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Index<O> createIndex(Tracker<O> tracker) {
+        Attribute attribute = tracker.attribute;
+        return switch (tracker.kind) {
+            case EQUALITY -> HashIndex.onAttribute(attribute);
+            case RANGE -> NavigableIndex.onAttribute(attribute);
+            case PREFIX -> RadixTreeIndex.onAttribute(attribute);
+            case SUBSTRING -> SuffixTreeIndex.onAttribute(attribute);
+        };
+    }
+
+    private static final class Tracker<O> {
+        final Attribute<O, ?> attribute;
+        final Kind kind;
+        final LongAdder queries = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        volatile SimpleQuery<O, ?> example;
+
+        // Guarded by the AdaptiveIndexer
+        long lastQueries;
+        long lastNanos;
+        double selectivity = Double.NaN;
+        Index<O> index;
+        int idle;
+
+        Tracker(Attribute<O, ?> attribute, Kind kind) {
+            this.attribute = attribute;
+            this.kind = kind;
+        }
+    }
+}
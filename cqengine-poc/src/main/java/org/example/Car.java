@@ -1,10 +1,12 @@
 package org.example;
 
+import com.googlecode.cqengine.persistence.support.serialization.PersistenceConfig;
 import lombok.Data;
 
 import java.util.List;
 
 @Data
+@PersistenceConfig(serializer = CarSerializer.class)
 public class Car {
     Integer id;
     String name;
@@ -0,0 +1,52 @@
+package org.example;
+
+import com.googlecode.cqengine.attribute.MultiValueAttribute;
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.query.option.QueryOptions;
+
+import java.util.Collections;
+
+/**
+ * CQEngine attributes of {@link Car}, shared by the catalog, the tests and the benchmarks.
+ */
+public final class CarAttributes {
+
+    public static final SimpleAttribute<Car, Integer> CAR_ID = new SimpleAttribute<Car, Integer>("id") {
+        public Integer getValue(Car car, QueryOptions queryOptions) {
+            return car.getId();
+        }
+    };
+
+    public static final SimpleAttribute<Car, String> CAR_MAKE = new SimpleAttribute<Car, String>("make") {
+        public String getValue(Car car, QueryOptions queryOptions) {
+            return car.getMake();
+        }
+    };
+
+    public static final SimpleAttribute<Car, Integer> CAR_YEAR = new SimpleAttribute<Car, Integer>("year") {
+        public Integer getValue(Car car, QueryOptions queryOptions) {
+            return car.getYear();
+        }
+    };
+
+    public static final SimpleAttribute<Car, Integer> CAR_HP = new SimpleAttribute<Car, Integer>("hp") {
+        public Integer getValue(Car car, QueryOptions queryOptions) {
+            return car.getHp();
+        }
+    };
+
+    public static final SimpleAttribute<Car, String> CAR_NAME = new SimpleAttribute<Car, String>("name") {
+        public String getValue(Car car, QueryOptions queryOptions) {
+            return car.getName();
+        }
+    };
+
+    public static final MultiValueAttribute<Car, String> CAR_OPTIONALS = new MultiValueAttribute<Car, String>("optionals") {
+        public Iterable<String> getValues(Car car, QueryOptions queryOptions) {
+            return car.getOptionals() != null ? car.getOptionals() : Collections.emptyList();
+        }
+    };
+
+    private CarAttributes() {
+    }
+}
@@ -0,0 +1,89 @@
+package org.example;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.index.disk.DiskIndex;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.index.navigable.NavigableIndex;
+import com.googlecode.cqengine.index.offheap.OffHeapIndex;
+import com.googlecode.cqengine.persistence.disk.DiskPersistence;
+import com.googlecode.cqengine.persistence.offheap.OffHeapPersistence;
+import com.googlecode.cqengine.persistence.onheap.OnHeapPersistence;
+
+import java.io.File;
+
+import static org.example.CarAttributes.*;
+
+/**
+ * Car collection indexed on make, year and hp, keyed on {@link CarAttributes#CAR_ID}.
+ * <p>
+ * The off-heap and disk variants keep the cars serialized outside the Java heap (in native memory or
+ * in an SQLite file) and use indexes stored the same way, so the collection is not limited by
+ * {@code -Xmx}. Close the catalog to release that storage.
+ */
+public final class CarCatalog implements AutoCloseable {
+
+    public enum Storage {
+        ON_HEAP,
+        OFF_HEAP,
+        DISK
+    }
+
+    private final IndexedCollection<Car> cars;
+    private final Runnable release;
+
+    private CarCatalog(IndexedCollection<Car> cars, Runnable release) {
+        this.cars = cars;
+        this.release = release;
+    }
+
+    public static CarCatalog onHeap() {
+        IndexedCollection<Car> cars = new ConcurrentIndexedCollection<>(OnHeapPersistence.onPrimaryKey(CAR_ID));
+        cars.addIndex(HashIndex.onAttribute(CAR_MAKE));
+        cars.addIndex(NavigableIndex.onAttribute(CAR_YEAR));
+        cars.addIndex(NavigableIndex.onAttribute(CAR_HP));
+        return new CarCatalog(cars, () -> { });
+    }
+
+    public static CarCatalog offHeap() {
+        OffHeapPersistence<Car, Integer> persistence = OffHeapPersistence.onPrimaryKey(CAR_ID);
+        IndexedCollection<Car> cars = new ConcurrentIndexedCollection<>(persistence);
+        cars.addIndex(OffHeapIndex.onAttribute(CAR_MAKE));
+        cars.addIndex(OffHeapIndex.onAttribute(CAR_YEAR));
+        cars.addIndex(OffHeapIndex.onAttribute(CAR_HP));
+        return new CarCatalog(cars, persistence::close);
+    }
+
+    /**
+     * Opens the catalog stored in {@code file}, creating it if needed. Cars already in the file are
+     * kept, so a catalog written once can be reopened without reloading it.
+     */
+    public static CarCatalog onDisk(File file) {
+        DiskPersistence<Car, Integer> persistence = DiskPersistence.onPrimaryKeyInFile(CAR_ID, file);
+        IndexedCollection<Car> cars = new ConcurrentIndexedCollection<>(persistence);
+        cars.addIndex(DiskIndex.onAttribute(CAR_MAKE));
+        cars.addIndex(DiskIndex.onAttribute(CAR_YEAR));
+        cars.addIndex(DiskIndex.onAttribute(CAR_HP));
+        return new CarCatalog(cars, persistence::close);
+    }
+
+    /**
+     * Creates an empty catalog, using {@code file} for {@link Storage#DISK} and ignoring it otherwise.
+     */
+    public static CarCatalog create(Storage storage, File file) {
+        return switch (storage) {
+            case ON_HEAP -> onHeap();
+            case OFF_HEAP -> offHeap();
+            case DISK -> onDisk(file);
+        };
+    }
+
+    public IndexedCollection<Car> cars() {
+        return cars;
+    }
+
+    @Override
+    public void close() {
+        release.run();
+    }
+}
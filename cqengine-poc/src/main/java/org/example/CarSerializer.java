@@ -0,0 +1,155 @@
+package org.example;
+
+import com.googlecode.cqengine.persistence.support.serialization.PersistenceConfig;
+import com.googlecode.cqengine.persistence.support.serialization.PojoSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a {@link Car} field by field for the off-heap and disk catalogs.
+ * <p>
+ * CQEngine's default Kryo serializer reflects into {@code java.util} internals, which newer JDKs only
+ * allow with {@code --add-opens}; this format needs no reflection and is smaller as well.
+ * <p>
+ * Strings are stored as a varint byte count followed by standard UTF-8, so unlike
+ * {@code writeUTF} there is no 65535-byte limit on a name or description.
+ */
+public class CarSerializer implements PojoSerializer<Car> {
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_YEAR = 1 << 1;
+    private static final int HAS_HP = 1 << 2;
+    private static final int HAS_NAME = 1 << 3;
+    private static final int HAS_DESCRIPTION = 1 << 4;
+    private static final int HAS_MAKE = 1 << 5;
+    private static final int HAS_OPTIONALS = 1 << 6;
+    static final int MAX_OPTIONALS = 0xFFFF;
+
+    // Instantiated reflectively by CQEngine through @PersistenceConfig
+    public CarSerializer(Class<Car> objectType, PersistenceConfig persistenceConfig) {
+    }
+
+    @Override
+    public byte[] serialize(Car car) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            int present = (car.getId() != null ? HAS_ID : 0)
+                    | (car.getYear() != null ? HAS_YEAR : 0)
+                    | (car.getHp() != null ? HAS_HP : 0)
+                    | (car.getName() != null ? HAS_NAME : 0)
+                    | (car.getDescription() != null ? HAS_DESCRIPTION : 0)
+                    | (car.getMake() != null ? HAS_MAKE : 0)
+                    | (car.getOptionals() != null ? HAS_OPTIONALS : 0);
+            out.writeByte(present);
+            if (car.getId() != null) {
+                out.writeInt(car.getId());
+            }
+            if (car.getYear() != null) {
+                out.writeInt(car.getYear());
+            }
+            if (car.getHp() != null) {
+                out.writeInt(car.getHp());
+            }
+            if (car.getName() != null) {
+                writeString(out, car.getName());
+            }
+            if (car.getDescription() != null) {
+                writeString(out, car.getDescription());
+            }
+            if (car.getMake() != null) {
+                writeString(out, car.getMake());
+            }
+            if (car.getOptionals() != null) {
+                List<String> optionals = car.getOptionals();
+                // The count is written as an unsigned short, and a string cannot be null
+                if (optionals.size() > MAX_OPTIONALS) {
+                    throw new IllegalArgumentException("Car " + car.getId() + " has " + optionals.size()
+                            + " optionals, at most " + MAX_OPTIONALS + " can be stored");
+                }
+                out.writeShort(optionals.size());
+                for (String optional : optionals) {
+                    if (optional == null) {
+                        throw new IllegalArgumentException("Car " + car.getId() + " has a null optional");
+                    }
+                    writeString(out, optional);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Car deserialize(byte[] bytes) {
+        Car car = new Car();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int present = in.readUnsignedByte();
+            if ((present & HAS_ID) != 0) {
+                car.setId(in.readInt());
+            }
+            if ((present & HAS_YEAR) != 0) {
+                car.setYear(in.readInt());
+            }
+            if ((present & HAS_HP) != 0) {
+                car.setHp(in.readInt());
+            }
+            if ((present & HAS_NAME) != 0) {
+                car.setName(readString(in));
+            }
+            if ((present & HAS_DESCRIPTION) != 0) {
+                car.setDescription(readString(in));
+            }
+            if ((present & HAS_MAKE) != 0) {
+                car.setMake(readString(in));
+            }
+            if ((present & HAS_OPTIONALS) != 0) {
+                int count = in.readUnsignedShort();
+                List<String> optionals = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    optionals.add(readString(in));
+                }
+                car.setOptionals(optionals);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return car;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        int length = utf8.length;
+        while ((length & ~0x7F) != 0) {
+            out.writeByte(length & 0x7F | 0x80);
+            length >>>= 7;
+        }
+        out.writeByte(length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            if (shift >= 28) {
+                throw new IOException("String length does not fit in an int");
+            }
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,153 @@
+package org.example;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Read-only column store over a list of cars: {@code int} arrays for id, year and hp, and the make
+ * dictionary-encoded as a {@code short} per car.
+ * <p>
+ * Filters scan one column and return the matching row numbers as a {@link BitSet}, which combine with
+ * {@link BitSet#and} and {@link BitSet#or}. Each scan builds 64 rows per {@code long} without branching
+ * on the data, so its speed does not depend on how many rows match. {@link #car(int)} maps a row back
+ * to the original {@link Car}.
+ */
+public final class CarTable {
+
+    private static final int MAX_MAKES = 1 << 16;
+
+    private final List<Car> cars;
+    private final int[] ids;
+    private final int[] years;
+    private final int[] hps;
+    private final short[] makeCodes;
+    private final Map<String, Integer> codeByMake = new HashMap<>();
+
+    /**
+     * Copies the columns out of {@code cars}, which must all have a make, year and hp.
+     */
+    public CarTable(List<Car> cars) {
+        int size = cars.size();
+        this.cars = List.copyOf(cars);
+        this.ids = new int[size];
+        this.years = new int[size];
+        this.hps = new int[size];
+        this.makeCodes = new short[size];
+        for (int row = 0; row < size; row++) {
+            Car car = this.cars.get(row);
+            ids[row] = Objects.requireNonNull(car.getId(), "id");
+            years[row] = Objects.requireNonNull(car.getYear(), "year");
+            hps[row] = Objects.requireNonNull(car.getHp(), "hp");
+            makeCodes[row] = (short) encode(Objects.requireNonNull(car.getMake(), "make"));
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public Car car(int row) {
+        return cars.get(row);
+    }
+
+    public int id(int row) {
+        return ids[row];
+    }
+
+    public BitSet makeIs(String make) {
+        Integer code = codeByMake.get(make);
+        return code == null ? new BitSet() : BitSet.valueOf(equalTo(makeCodes, code.shortValue()));
+    }
+
+    public BitSet makeIn(String... makes) {
+        boolean[] wanted = new boolean[codeByMake.size()];
+        for (String make : makes) {
+            Integer code = codeByMake.get(make);
+            if (code != null) {
+                wanted[code] = true;
+            }
+        }
+        return BitSet.valueOf(in(makeCodes, wanted));
+    }
+
+    /**
+     * Rows with {@code min <= year <= max}.
+     */
+    public BitSet yearBetween(int min, int max) {
+        return BitSet.valueOf(between(years, min, max));
+    }
+
+    /**
+     * Rows with {@code min <= hp <= max}.
+     */
+    public BitSet hpBetween(int min, int max) {
+        return BitSet.valueOf(between(hps, min, max));
+    }
+
+    private int encode(String make) {
+        Integer code = codeByMake.get(make);
+        if (code == null) {
+            if (codeByMake.size() == MAX_MAKES) {
+                throw new IllegalArgumentException("More than " + MAX_MAKES + " makes");
+            }
+            code = codeByMake.size();
+            codeByMake.put(make, code);
+        }
+        return code;
+    }
+
+    private static long[] between(int[] column, int min, int max) {
+        long[] words = new long[wordCount(column.length)];
+        if (min > max) {
+            return words;
+        }
+        // v is in [min, max] when v - min, read as unsigned, is at most max - min. In longs that is
+        // v - min - (max - min) - 1 < 0, whose sign bit is the match bit: no compare, no branch
+        long limit = Integer.toUnsignedLong(max - min) + 1;
+        for (int w = 0; w < words.length; w++) {
+            int base = w << 6;
+            int end = Math.min(64, column.length - base);
+            long word = 0;
+            for (int bit = 0; bit < end; bit++) {
+                word |= ((Integer.toUnsignedLong(column[base + bit] - min) - limit) >>> 63) << bit;
+            }
+            words[w] = word;
+        }
+        return words;
+    }
+
+    private static long[] equalTo(short[] column, short value) {
+        long[] words = new long[wordCount(column.length)];
+        for (int w = 0; w < words.length; w++) {
+            int base = w << 6;
+            int end = Math.min(64, column.length - base);
+            long word = 0;
+            for (int bit = 0; bit < end; bit++) {
+                word |= (column[base + bit] == value ? 1L : 0L) << bit;
+            }
+            words[w] = word;
+        }
+        return words;
+    }
+
+    private static long[] in(short[] column, boolean[] wanted) {
+        long[] words = new long[wordCount(column.length)];
+        for (int w = 0; w < words.length; w++) {
+            int base = w << 6;
+            int end = Math.min(64, column.length - base);
+            long word = 0;
+            for (int bit = 0; bit < end; bit++) {
+                word |= (wanted[column[base + bit] & 0xFFFF] ? 1L : 0L) << bit;
+            }
+            words[w] = word;
+        }
+        return words;
+    }
+
+    private static int wordCount(int rows) {
+        return (rows + 63) >>> 6;
+    }
+}
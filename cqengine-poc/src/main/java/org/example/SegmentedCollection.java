@@ -0,0 +1,189 @@
+package org.example;
+
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+
+/**
+ * Objects spread over several {@link IndexedCollection}s, each queried on its own thread.
+ * <p>
+ * CQEngine evaluates a query on the calling thread, so a scan no index can help with, or the union
+ * of an {@code or(...)}, uses one core however large the collection is. Here every object lives in one
+ * segment, picked by the hash of its {@code partitionKey}, and each segment has its own copy of the indexes.
+ * The key is an attribute such as an id rather than the object's own hash code, which for a {@code @Data}
+ * class covers every field and would send {@link #remove} to another segment after any change. A query runs
+ * against all segments at once on the pool, and the per-segment results are concatenated, summed,
+ * or merged in order.
+ */
+public class SegmentedCollection<O> {
+
+    private final List<IndexedCollection<O>> segments;
+    private final ForkJoinPool pool;
+    private final SimpleAttribute<O, ?> partitionKey;
+    private final QueryOptions keyQueryOptions = noQueryOptions();
+
+    /**
+     * @param partitionKey   picks an object's segment; must stay the same for as long as the object is stored
+     * @param segmentFactory creates one empty segment with the indexes every segment should have
+     */
+    public SegmentedCollection(int segmentCount, ForkJoinPool pool, SimpleAttribute<O, ?> partitionKey,
+                               Supplier<? extends IndexedCollection<O>> segmentFactory) {
+        if (segmentCount <= 0) {
+            throw new IllegalArgumentException("segmentCount must be positive: " + segmentCount);
+        }
+        this.segments = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(segmentFactory.get());
+        }
+        this.pool = pool;
+        this.partitionKey = partitionKey;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public int size() {
+        int size = 0;
+        for (IndexedCollection<O> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Adds {@code objects}, filling (and indexing) the segments in parallel.
+     */
+    public void addAll(Collection<O> objects) {
+        List<List<O>> parts = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            parts.add(new ArrayList<>(objects.size() / segments.size() + 1));
+        }
+        for (O object : objects) {
+            parts.get(segmentIndex(object)).add(object);
+        }
+        forEachSegment(i -> segments.get(i).addAll(parts.get(i)));
+    }
+
+    public boolean add(O object) {
+        return segments.get(segmentIndex(object)).add(object);
+    }
+
+    public boolean remove(O object) {
+        return segments.get(segmentIndex(object)).remove(object);
+    }
+
+    public int count(Query<O> query) {
+        int count = 0;
+        for (int segmentCount : forEachSegment(i -> {
+            try (ResultSet<O> results = segments.get(i).retrieve(query)) {
+                return results.size();
+            }
+        })) {
+            count += segmentCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns every match, segment by segment.
+     */
+    public List<O> retrieve(Query<O> query) {
+        List<List<O>> parts = forEachSegment(i -> collect(segments.get(i), query, noQueryOptions()));
+        List<O> results = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(results::addAll);
+        return results;
+    }
+
+    /**
+     * Returns every match ordered by {@code orderBy}. Each segment sorts its own matches (using an index
+     * on {@code orderBy} if it has one), and the sorted runs are merged on the calling thread.
+     */
+    public <A extends Comparable<A>> List<O> retrieve(Query<O> query, SimpleAttribute<O, A> orderBy, boolean descending) {
+        QueryOptions queryOptions = queryOptions(orderBy(descending ? descending(orderBy) : ascending(orderBy)));
+        List<List<O>> runs = forEachSegment(i -> collect(segments.get(i), query, queryOptions));
+
+        Comparator<A> order = descending ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        PriorityQueue<Run<O, A>> heads = new PriorityQueue<>((a, b) -> order.compare(a.key, b.key));
+        int total = 0;
+        for (List<O> run : runs) {
+            total += run.size();
+            if (!run.isEmpty()) {
+                heads.add(new Run<>(run, orderBy));
+            }
+        }
+        List<O> results = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            Run<O, A> head = heads.poll();
+            results.add(head.objects.get(head.position));
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        return results;
+    }
+
+    int segmentIndex(O object) {
+        return Math.floorMod(partitionKey.getValue(object, keyQueryOptions).hashCode(), segments.size());
+    }
+
+    private static <O> List<O> collect(IndexedCollection<O> segment, Query<O> query, QueryOptions queryOptions) {
+        List<O> matches = new ArrayList<>();
+        try (ResultSet<O> results = segment.retrieve(query, queryOptions)) {
+            for (O object : results) {
+                matches.add(object);
+            }
+        }
+        return matches;
+    }
+
+    // Runs task(i) for every segment i on the pool and waits for all of them
+    private <R> List<R> forEachSegment(IntFunction<R> task) {
+        List<ForkJoinTask<R>> tasks = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            int segment = i;
+            tasks.add(pool.submit(() -> task.apply(segment)));
+        }
+        List<R> results = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<R> submitted : tasks) {
+            results.add(submitted.join());
+        }
+        return results;
+    }
+
+    private static final class Run<O, A extends Comparable<A>> {
+        final List<O> objects;
+        final SimpleAttribute<O, A> orderBy;
+        final QueryOptions queryOptions = noQueryOptions();
+        int position;
+        A key;
+
+        Run(List<O> objects, SimpleAttribute<O, A> orderBy) {
+            this.objects = objects;
+            this.orderBy = orderBy;
+            this.key = orderBy.getValue(objects.get(0), queryOptions);
+        }
+
+        boolean advance() {
+            if (++position == objects.size()) {
+                return false;
+            }
+            key = orderBy.getValue(objects.get(position), queryOptions);
+            return true;
+        }
+    }
+}
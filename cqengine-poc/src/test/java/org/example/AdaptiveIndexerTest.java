@@ -0,0 +1,205 @@
+package org.example;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.resultset.ResultSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static org.example.CarAttributes.*;
+
+public class AdaptiveIndexerTest {
+
+    private IndexedCollection<Car> cars;
+    private AdaptiveIndexer<Car> indexer;
+
+    @BeforeEach
+    void setUp() {
+        String[] makes = {"Ford", "Honda", "Tesla", "Porsche", "Toyota", "BMW", "Mercedes", "Audi", "Chevrolet", "Nissan"};
+        String[] models = {"Sedan", "Coupe", "SUV", "Hatchback"};
+        Random random = new Random(42);
+        List<Car> data = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Car car = new Car();
+            car.setId(i);
+            car.setMake(makes[random.nextInt(makes.length)]);
+            car.setName(car.getMake() + " " + models[random.nextInt(models.length)] + " " + i);
+            car.setYear(2015 + random.nextInt(10));
+            car.setHp(150 + random.nextInt(500));
+            data.add(car);
+        }
+        cars = new ConcurrentIndexedCollection<>();
+        cars.addAll(data);
+        indexer = new AdaptiveIndexer<>(cars, 100, 0.2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        indexer.close();
+    }
+
+    @Test
+    void testHotShapesGetIndexed() throws Exception {
+        Query<Car> byMake = equal(CAR_MAKE, "Tesla");
+        Query<Car> byHp = between(CAR_HP, 300, 320);
+        Query<Car> byName = contains(CAR_NAME, "Coupe 12");
+        Assertions.assertTrue(scans(byMake));
+        int expectedTeslas = count(byMake);
+
+        for (int i = 0; i < 100; i++) {
+            run(i % 3 == 0 ? byMake : i % 3 == 1 ? byHp : byName);
+        }
+        indexer.awaitRebalance();
+
+        Assertions.assertFalse(scans(byMake));
+        Assertions.assertFalse(scans(byHp));
+        Assertions.assertFalse(scans(byName));
+        Assertions.assertEquals(expectedTeslas, count(byMake));
+        for (AdaptiveIndexer.ShapeStatistics statistics : indexer.statistics()) {
+            Assertions.assertTrue(statistics.indexed(), statistics.toString());
+            Assertions.assertTrue(statistics.selectivity() <= 0.2, statistics.toString());
+            Assertions.assertTrue(statistics.queries() >= 33, statistics.toString());
+        }
+    }
+
+    @Test
+    void testUnselectiveAndRareShapesAreLeftAlone() throws Exception {
+        Query<Car> mostCars = greaterThan(CAR_HP, 160);
+        Query<Car> rare = equal(CAR_YEAR, 2020);
+        run(rare);
+        for (int i = 0; i < 99; i++) {
+            run(mostCars);
+        }
+        indexer.awaitRebalance();
+
+        Assertions.assertTrue(scans(mostCars));
+        Assertions.assertTrue(scans(rare));
+        AdaptiveIndexer.ShapeStatistics hp = indexer.statistics().stream()
+            .filter(statistics -> statistics.shape().attribute().equals("hp")).findFirst().orElseThrow();
+        Assertions.assertFalse(hp.indexed());
+        Assertions.assertTrue(hp.selectivity() > 0.9);
+    }
+
+    @Test
+    void testIdleIndexesAreDropped() throws Exception {
+        Query<Car> byYear = lessThan(CAR_YEAR, 2016);
+        Query<Car> byMake = in(CAR_MAKE, "BMW", "Audi");
+        for (int i = 0; i < 100; i++) {
+            run(byYear);
+        }
+        indexer.awaitRebalance();
+        Assertions.assertFalse(scans(byYear));
+
+        // Two windows without a year query drop its index
+        for (int i = 0; i < 300; i++) {
+            run(byMake);
+            if (i % 100 == 99) {
+                indexer.awaitRebalance();
+            }
+        }
+        Assertions.assertTrue(scans(byYear));
+        Assertions.assertFalse(scans(byMake));
+    }
+
+    @Test
+    void testIndexesAddedElsewhereAreKept() throws Exception {
+        cars.addIndex(HashIndex.onAttribute(CAR_MAKE));
+        for (int i = 0; i < 400; i++) {
+            run(equal(CAR_YEAR, 2015 + i % 10));
+        }
+        indexer.awaitRebalance();
+
+        Assertions.assertFalse(scans(equal(CAR_MAKE, "Ford")));
+        Assertions.assertTrue(indexer.statistics().stream()
+            .noneMatch(statistics -> statistics.shape().attribute().equals("make")));
+    }
+
+    @Test
+    void testSelectivityIsSampledAcrossTheWholeCollection() throws Exception {
+        // The first 1000 cars the collection iterates are BMWs, the other 4000 are not
+        int position = 0;
+        for (Car car : cars) {
+            car.setMake(position++ < 1_000 ? "BMW" : "Ford");
+        }
+        try (AdaptiveIndexer<Car> lenient = new AdaptiveIndexer<>(cars, 100, 0.5, 2)) {
+            for (int i = 0; i < 100; i++) {
+                try (ResultSet<Car> results = lenient.retrieve(equal(CAR_MAKE, "BMW"))) {
+                    Assertions.assertEquals(1_000, results.size());
+                }
+            }
+            lenient.awaitRebalance();
+
+            AdaptiveIndexer.ShapeStatistics make = lenient.statistics().get(0);
+            Assertions.assertTrue(make.selectivity() > 0.1 && make.selectivity() < 0.3, make.toString());
+            Assertions.assertTrue(make.indexed());
+        }
+    }
+
+    @Test
+    void testQueriesStayCorrectWhileIndexesChange() throws Exception {
+        List<Query<Car>> queries = List.of(equal(CAR_MAKE, "Tesla"), between(CAR_HP, 300, 320),
+            lessThan(CAR_YEAR, 2016), startsWith(CAR_NAME, "Audi S"));
+        List<Integer> expected = new ArrayList<>();
+        for (Query<Car> query : queries) {
+            expected.add(count(query));
+        }
+
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int offset = t;
+                futures.add(threads.submit(() -> {
+                    // Each thread favours one shape in turn, so indexes keep being added and dropped
+                    for (int i = 0; i < 1_000; i++) {
+                        int which = (i / 200 + offset) % queries.size();
+                        try (ResultSet<Car> results = indexer.retrieve(queries.get(which))) {
+                            Assertions.assertEquals(expected.get(which), results.size());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+        indexer.awaitRebalance();
+        for (int i = 0; i < queries.size(); i++) {
+            Assertions.assertEquals(expected.get(i), count(queries.get(i)));
+        }
+    }
+
+    private void run(Query<Car> query) {
+        try (ResultSet<Car> results = indexer.retrieve(query)) {
+            for (Car car : results) {
+                Assertions.assertNotNull(car);
+            }
+        }
+    }
+
+    private int count(Query<Car> query) {
+        try (ResultSet<Car> results = cars.retrieve(query)) {
+            return results.size();
+        }
+    }
+
+    private boolean scans(Query<Car> query) {
+        try (ResultSet<Car> results = cars.retrieve(query)) {
+            return results.getRetrievalCost() == Integer.MAX_VALUE;
+        }
+    }
+}
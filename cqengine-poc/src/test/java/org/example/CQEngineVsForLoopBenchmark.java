@@ -2,22 +2,22 @@ package org.example;
 
 import com.googlecode.cqengine.ConcurrentIndexedCollection;
 import com.googlecode.cqengine.IndexedCollection;
-import com.googlecode.cqengine.attribute.Attribute;
-import com.googlecode.cqengine.attribute.MultiValueAttribute;
-import com.googlecode.cqengine.attribute.SimpleAttribute;
 import com.googlecode.cqengine.index.hash.HashIndex;
 import com.googlecode.cqengine.index.navigable.NavigableIndex;
 import com.googlecode.cqengine.index.suffix.SuffixTreeIndex;
-import com.googlecode.cqengine.query.option.QueryOptions;
 import com.googlecode.cqengine.resultset.ResultSet;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import static com.googlecode.cqengine.query.QueryFactory.*;
+import static org.example.CarAttributes.*;
 
 @BenchmarkMode(Mode.AverageTime)
 @OutputTimeUnit(TimeUnit.MICROSECONDS)
@@ -27,39 +27,10 @@ import static com.googlecode.cqengine.query.QueryFactory.*;
 @Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
 public class CQEngineVsForLoopBenchmark {
 
-    // CQEngine attributes
-    public static final Attribute<Car, String> CAR_MAKE = new SimpleAttribute<Car, String>("make") {
-        public String getValue(Car car, QueryOptions queryOptions) {
-            return car.getMake();
-        }
-    };
-
-    public static final Attribute<Car, Integer> CAR_YEAR = new SimpleAttribute<Car, Integer>("year") {
-        public Integer getValue(Car car, QueryOptions queryOptions) {
-            return car.getYear();
-        }
-    };
-
-    public static final Attribute<Car, Integer> CAR_HP = new SimpleAttribute<Car, Integer>("hp") {
-        public Integer getValue(Car car, QueryOptions queryOptions) {
-            return car.getHp();
-        }
-    };
-
-    public static final Attribute<Car, String> CAR_NAME = new SimpleAttribute<Car, String>("name") {
-        public String getValue(Car car, QueryOptions queryOptions) {
-            return car.getName();
-        }
-    };
-
-    public static final MultiValueAttribute<Car, String> CAR_OPTIONALS = new MultiValueAttribute<Car, String>("optionals") {
-        public Iterable<String> getValues(Car car, QueryOptions queryOptions) {
-            return car.getOptionals() != null ? car.getOptionals() : Collections.emptyList();
-        }
-    };
-
     private IndexedCollection<Car> cqEngineCollection;
     private IndexedCollection<Car> cqEngineIndexedCollection;
+    private AdaptiveIndexer<Car> adaptiveIndexer;
+    private CarTable carTable;
     private List<Car> plainList;
 
     @Setup
@@ -70,6 +41,9 @@ public class CQEngineVsForLoopBenchmark {
         // Setup plain list
         plainList = new ArrayList<>(cars);
 
+        // Setup column store
+        carTable = new CarTable(cars);
+
         // Setup CQEngine without indexes
         cqEngineCollection = new ConcurrentIndexedCollection<>();
         cqEngineCollection.addAll(cars);
@@ -82,17 +56,29 @@ public class CQEngineVsForLoopBenchmark {
         cqEngineIndexedCollection.addIndex(SuffixTreeIndex.onAttribute(CAR_NAME));
         cqEngineIndexedCollection.addIndex(HashIndex.onAttribute(CAR_OPTIONALS));
         cqEngineIndexedCollection.addAll(cars);
+
+        // Setup CQEngine without indexes, left to add them during warmup
+        IndexedCollection<Car> adaptiveCollection = new ConcurrentIndexedCollection<>();
+        adaptiveCollection.addAll(cars);
+        adaptiveIndexer = new AdaptiveIndexer<>(adaptiveCollection);
+    }
+
+    @TearDown
+    public void tearDown() {
+        adaptiveIndexer.close();
+    }
+
+    private static List<Car> generateTestData(int size) {
+        return generateTestData(new Random(42), 0, size); // Fixed seed for reproducible results
     }
 
-    private List<Car> generateTestData(int size) {
-        List<Car> cars = new ArrayList<>();
+    private static List<Car> generateTestData(Random random, int firstId, int size) {
+        List<Car> cars = new ArrayList<>(size);
         String[] makes = {"Ford", "Honda", "Tesla", "Porsche", "Toyota", "BMW", "Mercedes", "Audi", "Chevrolet", "Nissan"};
         String[] models = {"Sedan", "Coupe", "SUV", "Hatchback", "Convertible", "Truck", "Wagon"};
         String[] optionals = {"Navigation", "Leather Seats", "Sunroof", "Sport Package", "Premium Audio", "Autopilot"};
 
-        Random random = new Random(42); // Fixed seed for reproducible results
-
-        for (int i = 0; i < size; i++) {
+        for (int i = firstId; i < firstId + size; i++) {
             Car car = new Car();
             car.setId(i);
             car.setMake(makes[random.nextInt(makes.length)]);
@@ -118,6 +104,113 @@ public class CQEngineVsForLoopBenchmark {
         return cars;
     }
 
+    /**
+     * A large list of cars and the same cars as a column store, for full scans.
+     */
+    @State(Scope.Benchmark)
+    public static class ScanState {
+        @Param({"1000000", "10000000"})
+        private int carCount;
+
+        private List<Car> cars;
+        private CarTable table;
+
+        @Setup
+        public void setup() {
+            cars = generateTestData(carCount);
+            table = new CarTable(cars);
+        }
+    }
+
+    /**
+     * One million cars in a single collection, the baseline for {@link ParallelState}. Only make is indexed,
+     * so the hp range and the or(...) with it are scans.
+     */
+    @State(Scope.Benchmark)
+    public static class SequentialState {
+        private IndexedCollection<Car> single;
+
+        @Setup
+        public void setup() {
+            single = new ConcurrentIndexedCollection<>();
+            single.addIndex(HashIndex.onAttribute(CAR_MAKE));
+            single.addAll(generateTestData(1_000_000));
+        }
+    }
+
+    /**
+     * The same million cars split over 16 segments, queried with 1-16 threads.
+     */
+    @State(Scope.Benchmark)
+    public static class ParallelState {
+        private static final int SEGMENTS = 16;
+
+        @Param({"1", "2", "4", "8", "16"})
+        private int parallelism;
+
+        private ForkJoinPool pool;
+        private SegmentedCollection<Car> segmented;
+
+        @Setup
+        public void setup() {
+            List<Car> cars = generateTestData(1_000_000);
+            pool = new ForkJoinPool(parallelism);
+            segmented = new SegmentedCollection<>(SEGMENTS, pool, CAR_ID, () -> {
+                IndexedCollection<Car> segment = new ConcurrentIndexedCollection<>();
+                segment.addIndex(HashIndex.onAttribute(CAR_MAKE));
+                return segment;
+            });
+            segmented.addAll(cars);
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The same indexed catalog stored on heap, off heap and on disk. Cars are loaded in chunks so that
+     * the off-heap and disk variants never hold the whole data set on the heap.
+     * <p>
+     * 10M cars on heap need about 6 GB, so {@code ON_HEAP} stops at {@code -Dcatalog.maxOnHeapCars}
+     * (1M by default) and its 10M run fails fast instead of running the fork out of memory.
+     */
+    @State(Scope.Benchmark)
+    public static class CatalogState {
+        private static final int LOAD_CHUNK = 100_000;
+
+        @Param({"ON_HEAP", "OFF_HEAP", "DISK"})
+        private CarCatalog.Storage storage;
+
+        @Param({"1000000", "10000000"})
+        private int carCount;
+
+        private File file;
+        private CarCatalog catalog;
+
+        @Setup
+        public void setup() throws IOException {
+            long maxOnHeapCars = Long.getLong("catalog.maxOnHeapCars", 1_000_000);
+            if (storage == CarCatalog.Storage.ON_HEAP && carCount > maxOnHeapCars) {
+                throw new IllegalStateException("Skipping ON_HEAP with " + carCount + " cars; pass"
+                        + " -jvmArgsAppend -Dcatalog.maxOnHeapCars=" + carCount + " on a machine with 8 GB to run it");
+            }
+            file = Files.createTempFile("cars", ".db").toFile();
+            catalog = CarCatalog.create(storage, file);
+            Random random = new Random(42);
+            for (int loaded = 0; loaded < carCount; loaded += LOAD_CHUNK) {
+                catalog.cars().addAll(generateTestData(random, loaded, Math.min(LOAD_CHUNK, carCount - loaded)));
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            catalog.close();
+            file.delete();
+        }
+    }
+
     // Benchmark 1: Simple equality query by make
     @Benchmark
     public void cqEngineSimpleQuery(Blackhole bh) {
@@ -137,6 +230,20 @@ public class CQEngineVsForLoopBenchmark {
         }
     }
 
+    @Benchmark
+    public void adaptiveSimpleQuery(Blackhole bh) {
+        try (ResultSet<Car> results = adaptiveIndexer.retrieve(equal(CAR_MAKE, "Tesla"))) {
+            for (Car car : results) {
+                bh.consume(car);
+            }
+        }
+    }
+
+    @Benchmark
+    public void columnarSimpleQuery(Blackhole bh) {
+        consume(carTable, carTable.makeIs("Tesla"), bh);
+    }
+
     @Benchmark
     public void forLoopSimpleQuery(Blackhole bh) {
         for (Car car : plainList) {
@@ -182,6 +289,11 @@ public class CQEngineVsForLoopBenchmark {
         }
     }
 
+    @Benchmark
+    public void columnarRangeQuery(Blackhole bh) {
+        consume(carTable, carTable.hpBetween(300, 500), bh);
+    }
+
     @Benchmark
     public void forLoopRangeQuery(Blackhole bh) {
         for (Car car : plainList) {
@@ -229,6 +341,26 @@ public class CQEngineVsForLoopBenchmark {
         }
     }
 
+    @Benchmark
+    public void adaptiveComplexQuery(Blackhole bh) {
+        try (ResultSet<Car> results = adaptiveIndexer.retrieve(
+            and(
+                equal(CAR_MAKE, "Ford"),
+                greaterThanOrEqualTo(CAR_YEAR, 2020),
+                greaterThan(CAR_HP, 250)
+            )
+        )) {
+            for (Car car : results) {
+                bh.consume(car);
+            }
+        }
+    }
+
+    @Benchmark
+    public void columnarComplexQuery(Blackhole bh) {
+        consume(carTable, complexQuery(carTable), bh);
+    }
+
     @Benchmark
     public void forLoopComplexQuery(Blackhole bh) {
         for (Car car : plainList) {
@@ -268,6 +400,15 @@ public class CQEngineVsForLoopBenchmark {
         }
     }
 
+    @Benchmark
+    public void adaptiveStringQuery(Blackhole bh) {
+        try (ResultSet<Car> results = adaptiveIndexer.retrieve(contains(CAR_NAME, "Sedan"))) {
+            for (Car car : results) {
+                bh.consume(car);
+            }
+        }
+    }
+
     @Benchmark
     public void forLoopStringQuery(Blackhole bh) {
         for (Car car : plainList) {
@@ -334,6 +475,11 @@ public class CQEngineVsForLoopBenchmark {
         }
     }
 
+    @Benchmark
+    public int columnarCount() {
+        return carTable.makeIs("Honda").cardinality();
+    }
+
     @Benchmark
     public int forLoopCount() {
         int count = 0;
@@ -383,6 +529,11 @@ public class CQEngineVsForLoopBenchmark {
         }
     }
 
+    @Benchmark
+    public void columnarOrQuery(Blackhole bh) {
+        consume(carTable, carTable.makeIn("Tesla", "Porsche", "BMW"), bh);
+    }
+
     @Benchmark
     public void forLoopOrQuery(Blackhole bh) {
         for (Car car : plainList) {
@@ -400,4 +551,151 @@ public class CQEngineVsForLoopBenchmark {
                 .filter(car -> targetMakes.contains(car.getMake()))
                 .forEach(bh::consume);
     }
+
+    // Full scans over 1M-10M cars: boxed objects against columns
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+    public int scanForLoopComplexQuery(ScanState state) {
+        int count = 0;
+        for (Car car : state.cars) {
+            if ("Ford".equals(car.getMake()) &&
+                car.getYear() >= 2020 &&
+                car.getHp() > 250) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+    public int scanColumnarComplexQuery(ScanState state) {
+        return complexQuery(state.table).cardinality();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+    public int scanForLoopRangeQuery(ScanState state) {
+        int count = 0;
+        for (Car car : state.cars) {
+            if (car.getHp() >= 300 && car.getHp() <= 500) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+    public int scanColumnarRangeQuery(ScanState state) {
+        return state.table.hpBetween(300, 500).cardinality();
+    }
+
+    // Parallel evaluation over segments: 1M cars, hp scan, or(...) with a scan, ordered by hp
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+    public int sequentialScanQuery(SequentialState state) {
+        try (ResultSet<Car> results = state.single.retrieve(between(CAR_HP, 300, 310))) {
+            return results.size();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+    public int parallelScanQuery(ParallelState state) {
+        return state.segmented.count(between(CAR_HP, 300, 310));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+    public int sequentialOrQuery(SequentialState state) {
+        try (ResultSet<Car> results = state.single.retrieve(or(equal(CAR_MAKE, "Tesla"), greaterThan(CAR_HP, 640)))) {
+            return results.size();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+    public int parallelOrQuery(ParallelState state) {
+        return state.segmented.count(or(equal(CAR_MAKE, "Tesla"), greaterThan(CAR_HP, 640)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+    public void sequentialOrderedQuery(SequentialState state, Blackhole bh) {
+        try (ResultSet<Car> results = state.single.retrieve(
+            and(equal(CAR_MAKE, "Porsche"), greaterThan(CAR_HP, 600)),
+            queryOptions(orderBy(descending(CAR_HP)))
+        )) {
+            for (Car car : results) {
+                bh.consume(car);
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+    public List<Car> parallelOrderedQuery(ParallelState state) {
+        return state.segmented.retrieve(and(equal(CAR_MAKE, "Porsche"), greaterThan(CAR_HP, 600)), CAR_HP, true);
+    }
+
+    private static BitSet complexQuery(CarTable table) {
+        BitSet rows = table.makeIs("Ford");
+        rows.and(table.yearBetween(2020, Integer.MAX_VALUE));
+        rows.and(table.hpBetween(251, Integer.MAX_VALUE));
+        return rows;
+    }
+
+    private static void consume(CarTable table, BitSet rows, Blackhole bh) {
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            bh.consume(table.car(row));
+        }
+    }
+
+    // Benchmark 8: Indexed catalog by storage (a tenth of the cars match each query)
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+    public void catalogSimpleQuery(CatalogState state, Blackhole bh) {
+        try (ResultSet<Car> results = state.catalog.cars().retrieve(equal(CAR_MAKE, "Tesla"))) {
+            for (Car car : results) {
+                bh.consume(car);
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+    public void catalogComplexQuery(CatalogState state, Blackhole bh) {
+        try (ResultSet<Car> results = state.catalog.cars().retrieve(
+            and(
+                equal(CAR_MAKE, "Ford"),
+                equal(CAR_YEAR, 2020),
+                between(CAR_HP, 300, 349)
+            )
+        )) {
+            for (Car car : results) {
+                bh.consume(car);
+            }
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+    public int catalogCount(CatalogState state) {
+        try (ResultSet<Car> results = state.catalog.cars().retrieve(equal(CAR_MAKE, "Honda"))) {
+            return results.size();
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package org.example;
+
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.resultset.ResultSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static org.example.CarAttributes.*;
+
+public class CarCatalogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testEveryStorageAnswersLikeAPlainList() {
+        List<Car> cars = randomCars(5_000);
+        for (CarCatalog.Storage storage : CarCatalog.Storage.values()) {
+            try (CarCatalog catalog = CarCatalog.create(storage, tempDir.resolve(storage + ".db").toFile())) {
+                catalog.cars().addAll(cars);
+
+                Assertions.assertEquals(cars.size(), catalog.cars().size(), storage.name());
+                assertSameIds(cars, catalog, equal(CAR_MAKE, "Tesla"), car -> car.getMake().equals("Tesla"));
+                assertSameIds(cars, catalog, between(CAR_HP, 300, 500), car -> car.getHp() >= 300 && car.getHp() <= 500);
+                assertSameIds(cars, catalog,
+                    and(equal(CAR_MAKE, "Ford"), greaterThanOrEqualTo(CAR_YEAR, 2020), greaterThan(CAR_HP, 250)),
+                    car -> car.getMake().equals("Ford") && car.getYear() >= 2020 && car.getHp() > 250);
+                assertSameIds(cars, catalog, or(equal(CAR_MAKE, "BMW"), lessThan(CAR_YEAR, 2016)),
+                    car -> car.getMake().equals("BMW") || car.getYear() < 2016);
+            }
+        }
+    }
+
+    @Test
+    void testDiskCatalogCanBeReopened() {
+        File file = tempDir.resolve("cars.db").toFile();
+        List<Car> cars = randomCars(1_000);
+        try (CarCatalog catalog = CarCatalog.onDisk(file)) {
+            catalog.cars().addAll(cars);
+        }
+
+        try (CarCatalog catalog = CarCatalog.onDisk(file)) {
+            Assertions.assertEquals(cars.size(), catalog.cars().size());
+            assertSameIds(cars, catalog, equal(CAR_MAKE, "Honda"), car -> car.getMake().equals("Honda"));
+            try (ResultSet<Car> results = catalog.cars().retrieve(equal(CAR_ID, 42))) {
+                Assertions.assertEquals(cars.get(42), results.uniqueResult());
+            }
+        }
+    }
+
+    private static void assertSameIds(List<Car> cars, CarCatalog catalog, Query<Car> query, Predicate<Car> matches) {
+        Set<Integer> expected = new TreeSet<>();
+        for (Car car : cars) {
+            if (matches.test(car)) {
+                expected.add(car.getId());
+            }
+        }
+        Set<Integer> actual = new TreeSet<>();
+        try (ResultSet<Car> results = catalog.cars().retrieve(query)) {
+            for (Car car : results) {
+                actual.add(car.getId());
+            }
+        }
+        Assertions.assertEquals(expected, actual, query.toString());
+    }
+
+    private static List<Car> randomCars(int count) {
+        String[] makes = {"Ford", "Honda", "Tesla", "Porsche", "Toyota", "BMW"};
+        Random random = new Random(7);
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Car car = new Car();
+            car.setId(i);
+            car.setMake(makes[random.nextInt(makes.length)]);
+            car.setName(car.getMake() + " " + i);
+            car.setYear(2015 + random.nextInt(10));
+            car.setHp(150 + random.nextInt(500));
+            car.setDescription("Description for car " + i);
+            car.setOptionals(new ArrayList<>(List.of("Navigation", "Sunroof").subList(0, random.nextInt(3))));
+            cars.add(car);
+        }
+        return cars;
+    }
+}
@@ -0,0 +1,60 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CarSerializerTest {
+
+    private final CarSerializer serializer = new CarSerializer(Car.class, null);
+
+    @Test
+    void testRoundTripKeepsEveryFieldAndMissingOnes() {
+        Car car = new Car();
+        car.setId(7);
+        car.setMake("Tesla");
+        car.setHp(450);
+        car.setOptionals(List.of("Navigation", "Sunroof"));
+
+        Assertions.assertEquals(car, serializer.deserialize(serializer.serialize(car)));
+        Assertions.assertEquals(new Car(), serializer.deserialize(serializer.serialize(new Car())));
+    }
+
+    @Test
+    void testLargestOptionalsListRoundTrips() {
+        Car car = new Car();
+        car.setOptionals(new ArrayList<>(Collections.nCopies(CarSerializer.MAX_OPTIONALS, "x")));
+
+        Assertions.assertEquals(CarSerializer.MAX_OPTIONALS, serializer.deserialize(serializer.serialize(car)).getOptionals().size());
+    }
+
+    @Test
+    void testStringsLongerThanWriteUtfAllowsRoundTrip() {
+        Car car = new Car();
+        car.setName("é".repeat(40_000));
+        car.setDescription("x".repeat(200_000));
+        car.setMake("Citroën 🚗");
+        car.setOptionals(List.of("", "ü".repeat(70_000)));
+
+        Assertions.assertEquals(car, serializer.deserialize(serializer.serialize(car)));
+    }
+
+    @Test
+    void testRejectsOptionalsItCannotStore() {
+        Car tooMany = new Car();
+        tooMany.setId(1);
+        tooMany.setOptionals(Collections.nCopies(CarSerializer.MAX_OPTIONALS + 1, "x"));
+        Car withNull = new Car();
+        withNull.setId(2);
+        withNull.setOptionals(Arrays.asList("Navigation", null));
+
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class, () -> serializer.serialize(tooMany));
+        Assertions.assertTrue(e.getMessage().contains("65536 optionals"), e.getMessage());
+        e = Assertions.assertThrows(IllegalArgumentException.class, () -> serializer.serialize(withNull));
+        Assertions.assertTrue(e.getMessage().contains("null optional"), e.getMessage());
+    }
+}
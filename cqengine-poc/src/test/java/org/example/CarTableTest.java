@@ -0,0 +1,80 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+public class CarTableTest {
+
+    private static final String[] MAKES = {"Ford", "Honda", "Tesla", "Porsche", "Toyota", "BMW"};
+
+    private final List<Car> cars = randomCars(1_000 + 37); // Not a multiple of 64
+    private final CarTable table = new CarTable(cars);
+
+    @Test
+    void testFiltersMatchAPlainLoop() {
+        Assertions.assertEquals(cars.size(), table.size());
+        assertRows(car -> car.getMake().equals("Tesla"), table.makeIs("Tesla"));
+        assertRows(car -> car.getMake().equals("Tesla") || car.getMake().equals("BMW"), table.makeIn("Tesla", "BMW", "Lada"));
+        assertRows(car -> car.getYear() >= 2020, table.yearBetween(2020, Integer.MAX_VALUE));
+        assertRows(car -> car.getHp() >= 300 && car.getHp() <= 500, table.hpBetween(300, 500));
+        assertRows(car -> car.getHp() <= 200, table.hpBetween(Integer.MIN_VALUE, 200));
+    }
+
+    @Test
+    void testFiltersCombine() {
+        BitSet rows = table.makeIs("Ford");
+        rows.and(table.yearBetween(2020, Integer.MAX_VALUE));
+        rows.and(table.hpBetween(251, Integer.MAX_VALUE));
+        assertRows(car -> car.getMake().equals("Ford") && car.getYear() >= 2020 && car.getHp() > 250, rows);
+
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            Assertions.assertEquals(cars.get(row), table.car(row));
+            Assertions.assertEquals(cars.get(row).getId(), table.id(row));
+        }
+    }
+
+    @Test
+    void testNothingMatches() {
+        Assertions.assertTrue(table.makeIs("Lada").isEmpty());
+        Assertions.assertTrue(table.makeIn().isEmpty());
+        Assertions.assertTrue(table.yearBetween(2030, 2020).isEmpty());
+        Assertions.assertTrue(new CarTable(List.of()).hpBetween(0, 1000).isEmpty());
+    }
+
+    @Test
+    void testMissingColumnsAreRejected() {
+        Car car = cars.get(0);
+        car.setHp(null);
+        Assertions.assertThrows(NullPointerException.class, () -> new CarTable(List.of(car)));
+    }
+
+    private void assertRows(Predicate<Car> matches, BitSet actual) {
+        BitSet expected = new BitSet();
+        for (int row = 0; row < cars.size(); row++) {
+            if (matches.test(cars.get(row))) {
+                expected.set(row);
+            }
+        }
+        Assertions.assertEquals(expected, actual);
+    }
+
+    private static List<Car> randomCars(int count) {
+        Random random = new Random(3);
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Car car = new Car();
+            car.setId(i);
+            car.setMake(MAKES[random.nextInt(MAKES.length)]);
+            car.setYear(2015 + random.nextInt(10));
+            car.setHp(150 + random.nextInt(500));
+            cars.add(car);
+        }
+        return cars;
+    }
+}
@@ -0,0 +1,138 @@
+package org.example;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.index.navigable.NavigableIndex;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.resultset.ResultSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static org.example.CarAttributes.*;
+
+public class SegmentedCollectionTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final List<Car> cars = new ArrayList<>();
+    private IndexedCollection<Car> single;
+    private SegmentedCollection<Car> segmented;
+
+    @BeforeEach
+    void setUp() {
+        String[] makes = {"Ford", "Honda", "Tesla", "Porsche", "Toyota", "BMW"};
+        Random random = new Random(5);
+        for (int i = 0; i < 10_000; i++) {
+            Car car = new Car();
+            car.setId(i);
+            car.setMake(makes[random.nextInt(makes.length)]);
+            car.setYear(2015 + random.nextInt(10));
+            car.setHp(150 + random.nextInt(500));
+            cars.add(car);
+        }
+        single = new ConcurrentIndexedCollection<>();
+        single.addAll(cars);
+        segmented = new SegmentedCollection<>(7, pool, CAR_ID, () -> {
+            IndexedCollection<Car> segment = new ConcurrentIndexedCollection<>();
+            segment.addIndex(HashIndex.onAttribute(CAR_MAKE));
+            segment.addIndex(NavigableIndex.onAttribute(CAR_YEAR));
+            return segment;
+        });
+        segmented.addAll(cars);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testQueriesMatchASingleCollection() {
+        Assertions.assertEquals(cars.size(), segmented.size());
+        List<Query<Car>> queries = List.of(
+            equal(CAR_MAKE, "Tesla"),
+            between(CAR_HP, 300, 500),
+            and(equal(CAR_MAKE, "Ford"), greaterThanOrEqualTo(CAR_YEAR, 2020), greaterThan(CAR_HP, 250)),
+            or(equal(CAR_MAKE, "BMW"), lessThan(CAR_YEAR, 2016), greaterThan(CAR_HP, 640)),
+            equal(CAR_MAKE, "Lada"));
+        for (Query<Car> query : queries) {
+            Set<Car> expected = retrieve(query);
+            List<Car> actual = segmented.retrieve(query);
+            Assertions.assertEquals(expected.size(), actual.size(), query.toString());
+            Assertions.assertEquals(expected, new HashSet<>(actual), query.toString());
+            Assertions.assertEquals(expected.size(), segmented.count(query), query.toString());
+        }
+    }
+
+    @Test
+    void testOrderedResultsAreMerged() {
+        Query<Car> query = or(equal(CAR_MAKE, "Tesla"), equal(CAR_MAKE, "Porsche"));
+        Set<Car> expected = retrieve(query);
+
+        List<Car> ascending = segmented.retrieve(query, CAR_HP, false);
+        Assertions.assertEquals(expected, new HashSet<>(ascending));
+        Assertions.assertEquals(expected.size(), ascending.size());
+        assertSorted(ascending, Comparator.comparing(Car::getHp));
+
+        List<Car> descending = segmented.retrieve(query, CAR_YEAR, true);
+        Assertions.assertEquals(expected.size(), descending.size());
+        assertSorted(descending, Comparator.comparing(Car::getYear).reversed());
+    }
+
+    @Test
+    void testAddAndRemove() {
+        Car car = new Car();
+        car.setId(-1);
+        car.setMake("Lada");
+        car.setYear(1990);
+        car.setHp(70);
+        Assertions.assertTrue(segmented.add(car));
+        Assertions.assertEquals(List.of(car), segmented.retrieve(equal(CAR_MAKE, "Lada")));
+        Assertions.assertTrue(segmented.remove(car));
+        Assertions.assertFalse(segmented.remove(car));
+        Assertions.assertEquals(0, segmented.count(equal(CAR_MAKE, "Lada")));
+        Assertions.assertEquals(cars.size(), segmented.size());
+    }
+
+    @Test
+    void testSegmentDependsOnlyOnThePartitionKey() {
+        Set<Integer> used = new HashSet<>();
+        for (Car car : cars.subList(0, 100)) {
+            int segment = segmented.segmentIndex(car);
+            car.setHp(car.getHp() + 1);
+            car.setOptionals(List.of("Towbar"));
+            Car sameId = new Car();
+            sameId.setId(car.getId());
+
+            Assertions.assertEquals(segment, segmented.segmentIndex(car), car.toString());
+            Assertions.assertEquals(segment, segmented.segmentIndex(sameId), car.toString());
+            used.add(segment);
+        }
+        Assertions.assertEquals(7, used.size());
+    }
+
+    private Set<Car> retrieve(Query<Car> query) {
+        Set<Car> matches = new HashSet<>();
+        try (ResultSet<Car> results = single.retrieve(query)) {
+            results.forEach(matches::add);
+        }
+        return matches;
+    }
+
+    private static void assertSorted(List<Car> cars, Comparator<Car> order) {
+        for (int i = 1; i < cars.size(); i++) {
+            Assertions.assertTrue(order.compare(cars.get(i - 1), cars.get(i)) <= 0, "out of order at " + i);
+        }
+    }
+}
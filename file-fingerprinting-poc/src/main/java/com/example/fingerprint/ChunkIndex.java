@@ -0,0 +1,231 @@
+package com.example.fingerprint;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Set of SHA-256 chunk hashes with their chunk lengths, kept in a memory-mapped file.
+ * <p>
+ * The file is an open-addressing hash table with linear probing: a 32-byte header, then slots of 32 hash
+ * bytes and a 4-byte length, where length 0 marks an empty slot. Hashes are already uniform, so their first
+ * 8 bytes pick the slot. The table is mapped in segments of {@link #SEGMENT_SLOTS} slots, since one mapping
+ * cannot exceed 2 GB, and holds no Java object per entry, so it can outgrow the heap. When it is 70% full
+ * it is copied into a table twice the size, which replaces the file through an atomic move.
+ */
+public class ChunkIndex implements Closeable {
+
+    static final int MAGIC = 0x43484b31;
+    static final int HEADER_BYTES = 32;
+    static final int SLOT_BYTES = 36;
+    static final int SEGMENT_SLOTS = 1 << 20;
+    static final double MAX_LOAD = 0.7;
+
+    private final Path file;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private List<MappedByteBuffer> segments;
+    private long slotCount;
+    private long size;
+
+    private ChunkIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the index stored in {@code file}, creating an empty one if it does not exist. A file without the
+     * index header, or shorter than the table its header describes, is rejected before anything is mapped,
+     * so it is never modified.
+     */
+    public static ChunkIndex open(Path file) throws IOException {
+        return open(file, SEGMENT_SLOTS);
+    }
+
+    /**
+     * Like {@link #open(Path)}, but a new index starts with {@code initialSlots} slots, a power of two.
+     */
+    static ChunkIndex open(Path file, long initialSlots) throws IOException {
+        if (Long.bitCount(initialSlots) != 1) {
+            throw new IllegalArgumentException("initialSlots must be a power of two: " + initialSlots);
+        }
+        ChunkIndex index = new ChunkIndex(file);
+        if (Files.exists(file)) {
+            index.load();
+        } else {
+            index.create(file, initialSlots);
+        }
+        return index;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized boolean contains(byte[] hash) {
+        return length(probe(hash)) != 0;
+    }
+
+    /**
+     * Records a chunk of {@code length} bytes with this SHA-256 and returns {@code true} if it was not known.
+     */
+    public synchronized boolean add(byte[] hash, int length) throws IOException {
+        if (hash.length != 32 || length <= 0) {
+            throw new IllegalArgumentException("Need a 32-byte hash and a positive length");
+        }
+        long slot = probe(hash);
+        if (length(slot) != 0) {
+            return false;
+        }
+        if (size + 1 > MAX_LOAD * slotCount) {
+            grow();
+            slot = probe(hash);
+        }
+        write(slot, hash, length);
+        header.putLong(16, ++size);
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            header.force();
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // The slot holding hash, or the empty slot where it would go
+    private long probe(byte[] hash) {
+        ByteBuffer key = ByteBuffer.wrap(hash);
+        long mask = slotCount - 1;
+        for (long slot = key.getLong(0) & mask; ; slot = (slot + 1) & mask) {
+            if (length(slot) == 0 || matches(slot, key)) {
+                return slot;
+            }
+        }
+    }
+
+    private boolean matches(long slot, ByteBuffer key) {
+        MappedByteBuffer segment = segment(slot);
+        int position = position(slot);
+        for (int i = 0; i < 32; i += 8) {
+            if (segment.getLong(position + i) != key.getLong(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int length(long slot) {
+        return segment(slot).getInt(position(slot) + 32);
+    }
+
+    private void write(long slot, byte[] hash, int length) {
+        MappedByteBuffer segment = segment(slot);
+        segment.put(position(slot), hash);
+        segment.putInt(position(slot) + 32, length);
+    }
+
+    private MappedByteBuffer segment(long slot) {
+        return segments.get((int) (slot / SEGMENT_SLOTS));
+    }
+
+    private static int position(long slot) {
+        return (int) (slot % SEGMENT_SLOTS) * SLOT_BYTES;
+    }
+
+    private void grow() throws IOException {
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        ChunkIndex larger = new ChunkIndex(temporary);
+        try {
+            larger.create(temporary, slotCount * 2);
+            byte[] hash = new byte[32];
+            for (long slot = 0; slot < slotCount; slot++) {
+                int length = length(slot);
+                if (length != 0) {
+                    segment(slot).get(position(slot), hash);
+                    larger.write(larger.probe(hash), hash, length);
+                }
+            }
+            larger.size = size;
+            larger.header.putLong(16, size);
+            larger.close();
+        } catch (IOException e) {
+            larger.close();
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        close();
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        load();
+    }
+
+    // Checks the header through a plain read first: mapping a region past the end would grow the file
+    private void load() throws IOException {
+        FileChannel opened = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer fields = ByteBuffer.allocate(HEADER_BYTES);
+            int read = 0;
+            while (fields.hasRemaining() && read >= 0) {
+                read = opened.read(fields);
+            }
+            if (fields.hasRemaining() || fields.getInt(0) != MAGIC) {
+                throw new IOException("Not a chunk index: " + file);
+            }
+            long slots = fields.getLong(8);
+            long entries = fields.getLong(16);
+            // At least, not exactly, the table size: files written before segments were mapped to their exact
+            // length are padded to whole segments
+            if (slots <= 0 || Long.bitCount(slots) != 1 || slots > (Long.MAX_VALUE - HEADER_BYTES) / SLOT_BYTES
+                    || opened.size() < HEADER_BYTES + slots * SLOT_BYTES || entries < 0 || entries > slots) {
+                throw new IOException("Corrupt chunk index: " + file + " (" + slots + " slots, " + entries
+                        + " entries, " + opened.size() + " bytes)");
+            }
+            map(opened);
+            slotCount = slots;
+            size = entries;
+            mapSegments();
+        } catch (IOException | RuntimeException e) {
+            opened.close();
+            throw e;
+        }
+    }
+
+    private void create(Path path, long slots) throws IOException {
+        map(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+        header.putInt(0, MAGIC);
+        header.putLong(8, slots);
+        header.putLong(16, 0);
+        slotCount = slots;
+        size = 0;
+        mapSegments();
+    }
+
+    private void map(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+    }
+
+    // Mapping past the end grows the file; the new slots read as zero, which is empty. The last segment
+    // covers only the slots that exist, so a small table is not padded to a whole segment.
+    private void mapSegments() throws IOException {
+        segments = new ArrayList<>();
+        for (long first = 0; first < slotCount; first += SEGMENT_SLOTS) {
+            long offset = HEADER_BYTES + first * SLOT_BYTES;
+            long slots = Math.min(SEGMENT_SLOTS, slotCount - first);
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, offset, slots * SLOT_BYTES));
+        }
+    }
+}
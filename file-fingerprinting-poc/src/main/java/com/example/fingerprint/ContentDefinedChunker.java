@@ -0,0 +1,133 @@
+package com.example.fingerprint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Cuts a file into chunks at positions chosen by its content, using the FastCDC gear hash.
+ * <p>
+ * The gear hash is {@code h = (h << 1) + GEAR[byte]}, so its top bits depend on the last 64 bytes only. A
+ * chunk ends where those bits under a mask are all zero. Inserting or deleting bytes therefore moves only
+ * the boundaries around the edit, and identical regions of two files are cut into identical chunks. Chunks
+ * are at least {@code minSize} and at most {@code maxSize} bytes. Before {@code averageSize} a mask with two
+ * more bits makes cuts rarer, after it a mask with two fewer bits makes them likelier, which keeps sizes
+ * close to the average (FastCDC's normalized chunking).
+ * <p>
+ * The gear table comes from a fixed seed: changing it moves every boundary. A chunker reuses its read
+ * buffer and is not thread-safe.
+ */
+public class ContentDefinedChunker {
+
+    @FunctionalInterface
+    public interface ChunkSink {
+        /**
+         * Receives the chunk at {@code offset} in the file, held in {@code data[start, start + length)} until
+         * this call returns.
+         */
+        void accept(long offset, byte[] data, int start, int length) throws IOException;
+    }
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x6765617248L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final int minSize;
+    private final int averageSize;
+    private final int maxSize;
+    private final long smallMask;
+    private final long largeMask;
+    private final byte[] buffer;
+
+    public ContentDefinedChunker() {
+        this(2 * 1024, 8 * 1024, 64 * 1024);
+    }
+
+    /**
+     * @param averageSize a power of two between {@code minSize} and {@code maxSize}
+     */
+    public ContentDefinedChunker(int minSize, int averageSize, int maxSize) {
+        if (Integer.bitCount(averageSize) != 1 || minSize <= 0 || minSize > averageSize || averageSize > maxSize) {
+            throw new IllegalArgumentException("Need 0 < minSize <= averageSize <= maxSize, averageSize a power of two");
+        }
+        int bits = Integer.numberOfTrailingZeros(averageSize);
+        this.minSize = minSize;
+        this.averageSize = averageSize;
+        this.maxSize = maxSize;
+        this.smallMask = topBits(bits + 2);
+        this.largeMask = topBits(Math.max(1, bits - 2));
+        this.buffer = new byte[Math.max(4 * maxSize, 1 << 20)];
+    }
+
+    /**
+     * Passes every chunk of {@code file} to {@code sink} in order and returns how many there were.
+     */
+    public long chunk(Path file, ChunkSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long chunks = 0;
+            long offset = 0;
+            int start = 0;
+            int end = 0;
+            boolean eof = false;
+            while (true) {
+                if (!eof && end - start < maxSize) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                    ByteBuffer free = ByteBuffer.wrap(buffer, end, buffer.length - end);
+                    while (free.hasRemaining() && !eof) {
+                        eof = channel.read(free) == -1;
+                    }
+                    end = free.position();
+                }
+                if (start == end) {
+                    return chunks;
+                }
+                int length = cut(buffer, start, end);
+                sink.accept(offset, buffer, start, length);
+                chunks++;
+                start += length;
+                offset += length;
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the chunk starting at {@code data[start]}, given the bytes up to {@code end}.
+     */
+    int cut(byte[] data, int start, int end) {
+        int available = end - start;
+        if (available <= minSize) {
+            return available;
+        }
+        int limit = start + Math.min(available, maxSize);
+        int normal = start + Math.min(available, averageSize);
+        long hash = 0;
+        int i = start + minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xFF];
+            if ((hash & smallMask) == 0) {
+                return i + 1 - start;
+            }
+        }
+        for (; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xFF];
+            if ((hash & largeMask) == 0) {
+                return i + 1 - start;
+            }
+        }
+        return limit - start;
+    }
+
+    private static long topBits(int bits) {
+        return -1L << (64 - bits);
+    }
+}
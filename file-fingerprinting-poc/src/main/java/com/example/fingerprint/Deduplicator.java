@@ -0,0 +1,70 @@
+package com.example.fingerprint;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+/**
+ * Chunks files with a {@link ContentDefinedChunker}, hashes every chunk with SHA-256 and records the hashes in
+ * a {@link ChunkIndex}, counting how many bytes were already stored. Regions shared between files, or
+ * repeated within one, are found from the chunk hashes alone. Not thread-safe.
+ */
+public class Deduplicator {
+
+    /**
+     * Totals over every file added so far.
+     *
+     * @param bytes       bytes read
+     * @param uniqueBytes bytes in chunks the index did not know yet
+     * @param nanos       time spent chunking, hashing and indexing
+     */
+    public record Report(long files, long chunks, long uniqueChunks, long bytes, long uniqueBytes, long nanos) {
+
+        /**
+         * Bytes read per byte that had to be stored: 1.0 when nothing was duplicated, infinite when everything was.
+         */
+        public double dedupRatio() {
+            if (bytes == 0) {
+                return 1.0;
+            }
+            return uniqueBytes == 0 ? Double.POSITIVE_INFINITY : (double) bytes / uniqueBytes;
+        }
+
+        public double megabytesPerSecond() {
+            return nanos == 0 ? 0 : bytes / 1e6 / (nanos / 1e9);
+        }
+    }
+
+    private final ContentDefinedChunker chunker;
+    private final ChunkIndex index;
+    private final MessageDigest sha256 = MerkleManifest.sha256();
+    private long files;
+    private long chunks;
+    private long uniqueChunks;
+    private long bytes;
+    private long uniqueBytes;
+    private long nanos;
+
+    public Deduplicator(ContentDefinedChunker chunker, ChunkIndex index) {
+        this.chunker = chunker;
+        this.index = index;
+    }
+
+    public void add(Path file) throws IOException {
+        long start = System.nanoTime();
+        chunks += chunker.chunk(file, (offset, data, from, length) -> {
+            sha256.update(data, from, length);
+            if (index.add(sha256.digest(), length)) {
+                uniqueChunks++;
+                uniqueBytes += length;
+            }
+            bytes += length;
+        });
+        files++;
+        nanos += System.nanoTime() - start;
+    }
+
+    public Report report() {
+        return new Report(files, chunks, uniqueChunks, bytes, uniqueBytes, nanos);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.fingerprint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Feeds a file's content to a {@link Hasher} in large blocks through a {@link FileChannel}.
+ * <p>
+ * {@link Mode#DIRECT} reads into one reusable direct buffer, so the kernel copies straight into it with no
+ * intermediate heap array. {@link Mode#MAPPED} maps the file in windows of {@link #MAP_WINDOW} bytes and
+ * hands them to the hasher without any read calls; that pays off for large files, while small files are
+ * cheaper to read. A {@code FileDigester} keeps its buffer between calls and is not thread-safe.
+ */
+public class FileDigester {
+
+    public enum Mode {
+        DIRECT,
+        MAPPED
+    }
+
+    static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    static final long MAP_WINDOW = 1L << 28;
+
+    private final Mode mode;
+    private final ByteBuffer buffer;
+    private final long mapWindow;
+
+    public FileDigester() {
+        this(Mode.DIRECT, DEFAULT_BUFFER_SIZE);
+    }
+
+    public FileDigester(Mode mode, int bufferSize) {
+        this(mode, bufferSize, MAP_WINDOW);
+    }
+
+    // Tests use small windows to cross window boundaries without 256 MiB files
+    FileDigester(Mode mode, int bufferSize, long mapWindow) {
+        if (bufferSize <= 0 || mapWindow <= 0) {
+            throw new IllegalArgumentException("bufferSize and mapWindow must be positive: " + bufferSize + ", " + mapWindow);
+        }
+        this.mode = mode;
+        this.buffer = mode == Mode.DIRECT ? ByteBuffer.allocateDirect(bufferSize) : null;
+        this.mapWindow = mapWindow;
+    }
+
+    /**
+     * Updates {@code hasher} with the whole content of {@code file} and returns the number of bytes read.
+     */
+    public long update(Path file, Hasher hasher) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return mode == Mode.MAPPED ? updateMapped(channel, hasher) : updateDirect(channel, hasher);
+        }
+    }
+
+    /**
+     * Returns the hash of {@code file}. {@code hasher} must not hold any earlier input.
+     */
+    public byte[] digest(Path file, Hasher hasher) throws IOException {
+        update(file, hasher);
+        return hasher.digest();
+    }
+
+    private long updateDirect(FileChannel channel, Hasher hasher) throws IOException {
+        long total = 0;
+        buffer.clear();
+        int read;
+        while ((read = channel.read(buffer)) != -1) {
+            total += read;
+            buffer.flip();
+            hasher.update(buffer);
+            buffer.clear();
+        }
+        return total;
+    }
+
+    private long updateMapped(FileChannel channel, Hasher hasher) throws IOException {
+        long size = channel.size();
+        for (long position = 0; position < size; position += mapWindow) {
+            // A mapping is released when its buffer is garbage collected, so only one window is kept reachable
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(mapWindow, size - position));
+            hasher.update(window);
+        }
+        return size;
+    }
+}
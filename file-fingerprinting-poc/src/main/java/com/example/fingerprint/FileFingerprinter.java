@@ -1,45 +1,196 @@
 package com.example.fingerprint;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.security.DigestInputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Stream;
 
 public class FileFingerprinter {
 
     public static void main(String[] args) {
         if (args.length == 0) {
             System.out.println("Please provide a file path as an argument.");
+            printUsage();
             return;
         }
+        try {
+            run(args);
+        } catch (IllegalArgumentException e) {
+            // Bad or missing option values, including numbers that do not parse
+            System.out.println(e.getMessage());
+            printUsage();
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: FileFingerprinter [--algorithm <name>] <file>");
+        System.out.println("       FileFingerprinter --tree <directory> [--algorithm <name>] [--cache <file>] [--threads <n>]");
+        System.out.println("       FileFingerprinter --merkle <file> [--chunk-size <bytes>] [--manifest <file>] [--threads <n>]");
+        System.out.println("       FileFingerprinter --verify <file> <manifest> [--threads <n>]");
+        System.out.println("       FileFingerprinter --dedup <file or directory>... --index <file>");
+    }
+
+    private static void run(String[] args) {
+        switch (args[0]) {
+            case "--tree" -> {
+                fingerprintTree(args);
+                return;
+            }
+            case "--merkle", "--verify" -> {
+                fingerprintMerkle(args);
+                return;
+            }
+            case "--dedup" -> {
+                deduplicate(args);
+                return;
+            }
+            default -> {
+            }
+        }
 
+        HashAlgorithm algorithm = HashAlgorithm.SHA256;
         String filePath = args[0];
+        if (args[0].equals("--algorithm")) {
+            if (args.length != 3) {
+                throw new IllegalArgumentException("Please provide an algorithm and a file after --algorithm.");
+            }
+            algorithm = HashAlgorithm.parse(args[1]);
+            filePath = args[2];
+        }
         try {
-            String sha256 = calculateSHA256(filePath);
-            System.out.println("SHA-256 Fingerprint: " + sha256);
-        } catch (IOException | NoSuchAlgorithmException e) {
+            String fingerprint = calculate(Path.of(filePath), algorithm);
+            System.out.println((algorithm == HashAlgorithm.SHA256 ? "SHA-256" : algorithm.name()) + " Fingerprint: " + fingerprint);
+        } catch (IOException e) {
             System.err.println("Error calculating fingerprint: " + e.getMessage());
         }
     }
 
-    private static String calculateSHA256(String filePath) throws IOException, NoSuchAlgorithmException {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        try (InputStream is = new FileInputStream(filePath);
-             DigestInputStream dis = new DigestInputStream(is, md)) {
-            // Read the file to update the message digest
-            while (dis.read() != -1) ;
+    /**
+     * Returns the value of the option at {@code args[i - 1]}, which must be there.
+     */
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value after " + args[i - 1] + ".");
         }
-        byte[] digest = md.digest();
-        return bytesToHex(digest);
+        return args[i];
     }
 
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
+    private static void fingerprintTree(String[] args) {
+        Path root = null;
+        Path cacheFile = null;
+        HashAlgorithm algorithm = HashAlgorithm.SHA256;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--cache" -> cacheFile = Path.of(value(args, ++i));
+                case "--algorithm" -> algorithm = HashAlgorithm.parse(value(args, ++i));
+                case "--threads" -> threads = Integer.parseInt(value(args, ++i));
+                default -> root = Path.of(args[i]);
+            }
         }
-        return sb.toString();
+        if (root == null) {
+            System.out.println("Please provide a directory after --tree.");
+            return;
+        }
+
+        try {
+            FingerprintCache cache = cacheFile == null ? null : FingerprintCache.open(cacheFile, algorithm);
+            TreeFingerprinter.Result result = new TreeFingerprinter(threads, algorithm, cache).fingerprint(root);
+            Path base = root.toAbsolutePath().normalize();
+            result.fingerprints().forEach((file, fingerprint) -> System.out.println(fingerprint + "  " + base.relativize(file)));
+            result.errors().forEach((file, error) -> System.err.println("Error reading " + file + ": " + error));
+            if (cache != null) {
+                cache.save();
+            }
+            System.err.printf("%d files: %d hashed (%d MB read), %d from cache, %d errors%n",
+                    result.fingerprints().size(), result.hashedFiles(), result.bytesRead() / 1_000_000,
+                    result.cachedFiles(), result.errors().size());
+        } catch (IOException e) {
+            System.err.println("Error calculating fingerprints: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void fingerprintMerkle(String[] args) {
+        List<Path> paths = new ArrayList<>();
+        Path manifestFile = null;
+        int chunkSize = MerkleFingerprinter.DEFAULT_CHUNK_SIZE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--manifest" -> manifestFile = Path.of(value(args, ++i));
+                case "--chunk-size" -> chunkSize = Integer.parseInt(value(args, ++i));
+                case "--threads" -> threads = Integer.parseInt(value(args, ++i));
+                default -> paths.add(Path.of(args[i]));
+            }
+        }
+
+        MerkleFingerprinter fingerprinter = new MerkleFingerprinter(chunkSize, threads);
+        try {
+            if (args[0].equals("--verify")) {
+                if (paths.size() != 2) {
+                    System.out.println("Please provide a file and its manifest after --verify.");
+                    return;
+                }
+                BitSet changed = fingerprinter.verify(paths.get(0), MerkleManifest.read(paths.get(1)));
+                System.out.println(changed.isEmpty() ? "OK" : "Changed chunks: " + changed);
+                return;
+            }
+            if (paths.size() != 1) {
+                System.out.println("Please provide a file after --merkle.");
+                return;
+            }
+            MerkleManifest manifest = fingerprinter.fingerprint(paths.get(0));
+            System.out.println("Merkle root (" + manifest.chunkCount() + " chunks of " + chunkSize + " bytes): "
+                    + Hex.toHex(manifest.root()));
+            if (manifestFile != null) {
+                manifest.writeTo(manifestFile);
+            }
+        } catch (IOException e) {
+            System.err.println("Error calculating fingerprint: " + e.getMessage());
+        }
+    }
+
+    private static void deduplicate(String[] args) {
+        List<Path> paths = new ArrayList<>();
+        Path indexFile = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--index")) {
+                indexFile = Path.of(value(args, ++i));
+            } else {
+                paths.add(Path.of(args[i]));
+            }
+        }
+        if (indexFile == null || paths.isEmpty()) {
+            System.out.println("Please provide files or directories and --index <file> after --dedup.");
+            return;
+        }
+
+        try (ChunkIndex index = ChunkIndex.open(indexFile)) {
+            Deduplicator deduplicator = new Deduplicator(new ContentDefinedChunker(), index);
+            for (Path path : paths) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                        deduplicator.add(file);
+                    }
+                }
+            }
+            Deduplicator.Report report = deduplicator.report();
+            System.out.printf("%d files, %d MB in %d chunks, %d MB new in %d chunks%n",
+                    report.files(), report.bytes() / 1_000_000, report.chunks(),
+                    report.uniqueBytes() / 1_000_000, report.uniqueChunks());
+            System.out.printf("Dedup ratio %.2f, %.0f MB/s, %d chunks in the index%n",
+                    report.dedupRatio(), report.megabytesPerSecond(), index.size());
+        } catch (IOException e) {
+            System.err.println("Error deduplicating: " + e.getMessage());
+        }
+    }
+
+    static String calculate(Path file, HashAlgorithm algorithm) throws IOException {
+        return Hex.toHex(new FileDigester().digest(file, algorithm.newHasher()));
     }
 }
\ No newline at end of file
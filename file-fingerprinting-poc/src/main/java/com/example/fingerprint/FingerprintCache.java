@@ -0,0 +1,148 @@
+package com.example.fingerprint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fingerprints from earlier runs, kept in a file and keyed by path, size, modification time and file key
+ * (device and inode on Unix). A cache file holds fingerprints of one {@link HashAlgorithm}; opening it for
+ * another starts empty.
+ * <p>
+ * A file whose attributes all still match is not read again. A file modified less than
+ * {@link #RACY_WINDOW_MILLIS} before the run started is hashed but not remembered: it could change again
+ * within the same timestamp. {@link #save()} writes only the entries looked up or stored during this run,
+ * so deleted files drop out.
+ */
+public class FingerprintCache {
+
+    static final int MAGIC = 0x46504332;
+    static final long RACY_WINDOW_MILLIS = 2_000;
+
+    private final Path file;
+    private final HashAlgorithm algorithm;
+    private final long runStartMillis = System.currentTimeMillis();
+    private final Map<String, Entry> previous = new ConcurrentHashMap<>();
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private FingerprintCache(Path file, HashAlgorithm algorithm) {
+        this.file = file;
+        this.algorithm = algorithm;
+    }
+
+    public static FingerprintCache open(Path file) throws IOException {
+        return open(file, HashAlgorithm.SHA256);
+    }
+
+    /**
+     * Loads the cache stored in {@code file}, or starts an empty one if the file does not exist, holds
+     * fingerprints of another algorithm, or is not a cache this version can read (an older format, or cut
+     * short). A cache only saves work, so an unreadable one is reported on standard error and overwritten
+     * by {@link #save()}.
+     */
+    public static FingerprintCache open(Path file, HashAlgorithm algorithm) throws IOException {
+        FingerprintCache cache = new FingerprintCache(file, algorithm);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                System.err.println("Ignoring " + file + ": not a fingerprint cache of this version");
+                return cache;
+            }
+            if (!in.readUTF().equals(algorithm.name())) {
+                return cache;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                cache.previous.put(path, new Entry(in.readLong(), in.readLong(), in.readUTF(), in.readUTF()));
+            }
+        } catch (NoSuchFileException e) {
+            // First run
+        } catch (EOFException | UTFDataFormatException e) {
+            System.err.println("Ignoring " + file + ": fingerprint cache is truncated or corrupt");
+            cache.previous.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the remembered fingerprint of {@code path}, or {@code null} if it is unknown or the file changed.
+     */
+    public String lookup(Path path, BasicFileAttributes attributes) {
+        String key = path.toString();
+        Entry entry = previous.get(key);
+        if (entry == null || !entry.matches(attributes)) {
+            return null;
+        }
+        current.put(key, entry);
+        return entry.fingerprint();
+    }
+
+    public void store(Path path, BasicFileAttributes attributes, String fingerprint) {
+        long modified = attributes.lastModifiedTime().toMillis();
+        if (modified >= runStartMillis - RACY_WINDOW_MILLIS) {
+            return;
+        }
+        current.put(path.toString(), new Entry(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                fileKey(attributes), fingerprint));
+    }
+
+    public HashAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    /**
+     * Writes this run's entries to a temporary file and moves it over the cache file.
+     */
+    public void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(algorithm.name());
+            out.writeInt(current.size());
+            for (Map.Entry<String, Entry> entry : current.entrySet()) {
+                Entry value = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(value.size());
+                out.writeLong(value.modifiedNanos());
+                out.writeUTF(value.fileKey());
+                out.writeUTF(value.fingerprint());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String fileKey(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key == null ? "" : key.toString();
+    }
+
+    private record Entry(long size, long modifiedNanos, String fileKey, String fingerprint) {
+
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && modifiedNanos == attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && Objects.equals(fileKey, FingerprintCache.fileKey(attributes));
+        }
+    }
+}
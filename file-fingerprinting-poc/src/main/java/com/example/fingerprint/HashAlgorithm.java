@@ -0,0 +1,118 @@
+package com.example.fingerprint;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.zip.CRC32C;
+
+/**
+ * The hashes a fingerprint can be computed with.
+ * <p>
+ * {@link #SHA256} is the only one that resists deliberate collisions. {@link #CRC32C} and {@link #XXH64} are
+ * far cheaper and are enough to notice accidental changes, such as in incremental scans, but anyone can craft a
+ * file with a chosen value. {@link #TREE} is the Merkle root over 4 MiB SHA-256 chunks, equal to the
+ * {@code --merkle} root, which can be computed in parallel.
+ */
+public enum HashAlgorithm {
+
+    SHA256 {
+        @Override
+        public Hasher newHasher() {
+            return new MessageDigestHasher(MerkleManifest.sha256());
+        }
+    },
+    CRC32C {
+        @Override
+        public Hasher newHasher() {
+            return new Crc32cHasher();
+        }
+    },
+    XXH64 {
+        @Override
+        public Hasher newHasher() {
+            return new Xxh64Hasher();
+        }
+    },
+    TREE {
+        @Override
+        public Hasher newHasher() {
+            return new TreeHasher(MerkleFingerprinter.DEFAULT_CHUNK_SIZE);
+        }
+    };
+
+    public abstract Hasher newHasher();
+
+    /**
+     * Looks an algorithm up by name, ignoring case and dashes, so {@code sha-256} and {@code crc32c} both work.
+     */
+    public static HashAlgorithm parse(String name) {
+        String normalized = name.replace("-", "").toUpperCase(Locale.ROOT);
+        for (HashAlgorithm algorithm : values()) {
+            if (algorithm.name().equals(normalized)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unknown hash algorithm: " + name);
+    }
+
+    /**
+     * Wraps an existing {@link MessageDigest}, which keeps its own state.
+     */
+    public static Hasher of(MessageDigest digest) {
+        return new MessageDigestHasher(digest);
+    }
+
+    private static final class MessageDigestHasher implements Hasher {
+        private final MessageDigest digest;
+
+        MessageDigestHasher(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void update(byte[] data, int offset, int length) {
+            digest.update(data, offset, length);
+        }
+
+        @Override
+        public void update(ByteBuffer data) {
+            digest.update(data);
+        }
+
+        @Override
+        public byte[] digest() {
+            return digest.digest();
+        }
+
+        @Override
+        public int digestLength() {
+            return digest.getDigestLength();
+        }
+    }
+
+    private static final class Crc32cHasher implements Hasher {
+        private final CRC32C crc = new CRC32C();
+
+        @Override
+        public void update(byte[] data, int offset, int length) {
+            crc.update(data, offset, length);
+        }
+
+        @Override
+        public void update(ByteBuffer data) {
+            crc.update(data);
+        }
+
+        @Override
+        public byte[] digest() {
+            int value = (int) crc.getValue();
+            crc.reset();
+            return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        }
+
+        @Override
+        public int digestLength() {
+            return 4;
+        }
+    }
+}
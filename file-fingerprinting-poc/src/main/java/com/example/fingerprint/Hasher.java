@@ -0,0 +1,23 @@
+package com.example.fingerprint;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental hash of a byte stream, created by a {@link HashAlgorithm}. Not thread-safe.
+ */
+public interface Hasher {
+
+    void update(byte[] data, int offset, int length);
+
+    /**
+     * Hashes the remaining bytes of {@code data} and moves its position to its limit.
+     */
+    void update(ByteBuffer data);
+
+    /**
+     * Returns the hash of everything passed in since the last call and starts over.
+     */
+    byte[] digest();
+
+    int digestLength();
+}
@@ -0,0 +1,52 @@
+package com.example.fingerprint;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lowercase hexadecimal encoding from a lookup table, without {@code String.format} or a {@code StringBuilder}.
+ */
+public final class Hex {
+
+    private static final byte[] DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private Hex() {
+    }
+
+    /**
+     * Writes {@code 2 * bytes.length} ASCII digits into {@code out} from {@code offset}, allocating nothing.
+     */
+    public static void encode(byte[] bytes, byte[] out, int offset) {
+        for (int i = 0; i < bytes.length; i++) {
+            out[offset + 2 * i] = DIGITS[(bytes[i] >> 4) & 0xF];
+            out[offset + 2 * i + 1] = DIGITS[bytes[i] & 0xF];
+        }
+    }
+
+    /**
+     * Returns the hex string, allocating only the digits and the {@code String}.
+     */
+    public static String toHex(byte[] bytes) {
+        byte[] digits = new byte[2 * bytes.length];
+        encode(bytes, digits, 0);
+        return new String(digits, StandardCharsets.ISO_8859_1);
+    }
+
+    public static byte[] decode(CharSequence hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd number of hex digits: " + hex);
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (digit(hex.charAt(2 * i)) << 4 | digit(hex.charAt(2 * i + 1)));
+        }
+        return bytes;
+    }
+
+    private static int digit(char c) {
+        int digit = Character.digit(c, 16);
+        if (digit < 0) {
+            throw new IllegalArgumentException("Not a hex digit: " + c);
+        }
+        return digit;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.fingerprint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Merkle-tree fingerprint of a single file (see {@link MerkleManifest} for the tree layout).
+ * <p>
+ * The file is cut into fixed {@code chunkSize} chunks, which {@code threads} workers read with positional
+ * reads on one shared {@link FileChannel} and hash independently; only the small tree over the chunk hashes
+ * is built on the calling thread. Against an earlier manifest, {@link #verify} finds the chunks that changed,
+ * and {@link #rehash} reads only the chunks it is told changed.
+ */
+public class MerkleFingerprinter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    private final int chunkSize;
+    private final int threads;
+
+    public MerkleFingerprinter(int chunkSize, int threads) {
+        if (chunkSize <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("chunkSize and threads must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+    }
+
+    public MerkleManifest fingerprint(Path file) throws IOException {
+        return hash(file, chunkSize, null, null);
+    }
+
+    /**
+     * Re-reads the whole file and returns the chunks whose hash differs from {@code manifest}, including
+     * chunks added or cut off since it was made. An empty set means the file still matches.
+     */
+    public BitSet verify(Path file, MerkleManifest manifest) throws IOException {
+        MerkleManifest current = hash(file, manifest.chunkSize(), null, null);
+        BitSet changed = new BitSet();
+        for (int chunk = 0; chunk < Math.max(current.chunkCount(), manifest.chunkCount()); chunk++) {
+            if (chunk >= current.chunkCount() || !manifest.sameLeaf(chunk, current.leaves().get(chunk))) {
+                changed.set(chunk);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the manifest of {@code file} after the chunks in {@code changed} were modified, reading only those.
+     * Chunks past the end of {@code previous}, and the last chunk when the size changed, are read as well.
+     */
+    public MerkleManifest rehash(Path file, MerkleManifest previous, BitSet changed) throws IOException {
+        return hash(file, previous.chunkSize(), previous, changed);
+    }
+
+    // Takes unchanged chunk hashes from previous when given, otherwise reads every chunk
+    private MerkleManifest hash(Path file, int chunkSize, MerkleManifest previous, BitSet changed) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunkCount = MerkleManifest.chunkCount(size, chunkSize);
+            // A previous partial last chunk is only complete if the size did not change
+            int reusable = previous == null ? 0
+                    : previous.fileSize() == size ? previous.chunkCount() : previous.chunkCount() - 1;
+            ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(chunkSize));
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<byte[]>> leaves = new ArrayList<>(chunkCount);
+                for (int chunk = 0; chunk < chunkCount; chunk++) {
+                    if (chunk < reusable && !changed.get(chunk)) {
+                        leaves.add(CompletableFuture.completedFuture(previous.leaves().get(chunk)));
+                        continue;
+                    }
+                    long position = (long) chunk * chunkSize;
+                    int length = (int) Math.min(chunkSize, size - position);
+                    leaves.add(pool.submit(() -> workers.get().hashChunk(channel, position, length)));
+                }
+                List<byte[]> hashes = new ArrayList<>(chunkCount);
+                for (Future<byte[]> leaf : leaves) {
+                    hashes.add(leaf.get());
+                }
+                return new MerkleManifest(chunkSize, size, hashes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while hashing " + file, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                throw new IOException("Failed to hash " + file, e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private static final class Worker {
+        final ByteBuffer buffer;
+        final MessageDigest sha256 = MerkleManifest.sha256();
+
+        Worker(int chunkSize) {
+            buffer = ByteBuffer.allocateDirect(chunkSize);
+        }
+
+        byte[] hashChunk(FileChannel channel, long position, int length) {
+            sha256.reset();
+            sha256.update(MerkleManifest.LEAF);
+            buffer.clear().limit(length);
+            try {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) == -1) {
+                        throw new IOException("File shrank while hashing, at " + (position + buffer.position()));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.flip();
+            sha256.update(buffer);
+            return sha256.digest();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.fingerprint;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The chunk hashes of a file and the Merkle root over them.
+ * <p>
+ * Leaves are {@code SHA-256(0x00 || chunk)} and inner nodes {@code SHA-256(0x01 || left || right)}, so a leaf
+ * can never pass for a node. A node without a right sibling moves up a level unchanged. An empty file has
+ * one empty chunk.
+ * <p>
+ * The text form is a header line {@code merkle-sha256 <chunkSize> <fileSize> <chunkCount>}, one hex leaf
+ * hash per line, and {@code root <hex>}.
+ * <p>
+ * Two manifests are equal when they have the same chunk size, file size and leaf hashes.
+ */
+public record MerkleManifest(int chunkSize, long fileSize, List<byte[]> leaves) {
+
+    static final String HEADER = "merkle-sha256";
+    static final byte LEAF = 0;
+    static final byte NODE = 1;
+
+    public MerkleManifest {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        if (fileSize < 0) {
+            throw new IllegalArgumentException("fileSize must not be negative: " + fileSize);
+        }
+        leaves = List.copyOf(leaves);
+        if (leaves.size() != chunkCount(fileSize, chunkSize)) {
+            throw new IllegalArgumentException(leaves.size() + " leaves for " + fileSize + " bytes in chunks of " + chunkSize);
+        }
+    }
+
+    /**
+     * @throws ArithmeticException if the file has more than {@link Integer#MAX_VALUE} chunks
+     */
+    public static int chunkCount(long fileSize, int chunkSize) {
+        return Math.toIntExact(Math.max(1, fileSize / chunkSize + (fileSize % chunkSize == 0 ? 0 : 1)));
+    }
+
+    public int chunkCount() {
+        return leaves.size();
+    }
+
+    public byte[] root() {
+        MessageDigest sha256 = sha256();
+        List<byte[]> level = leaves;
+        while (level.size() > 1) {
+            List<byte[]> parents = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i < level.size(); i += 2) {
+                if (i + 1 == level.size()) {
+                    parents.add(level.get(i));
+                } else {
+                    sha256.update(NODE);
+                    sha256.update(level.get(i));
+                    sha256.update(level.get(i + 1));
+                    parents.add(sha256.digest());
+                }
+            }
+            level = parents;
+        }
+        return level.get(0);
+    }
+
+    public void writeTo(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            out.write(HEADER + " " + chunkSize + " " + fileSize + " " + leaves.size());
+            out.newLine();
+            for (byte[] leaf : leaves) {
+                out.write(Hex.toHex(leaf));
+                out.newLine();
+            }
+            out.write("root " + Hex.toHex(root()));
+            out.newLine();
+        }
+    }
+
+    /**
+     * Reads a manifest written by {@link #writeTo(Path)} and checks that its root matches its leaves.
+     */
+    public static MerkleManifest read(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String[] header = String.valueOf(in.readLine()).split(" ");
+            if (header.length != 4 || !header[0].equals(HEADER)) {
+                throw new IOException("Not a Merkle manifest: " + file);
+            }
+            int chunkSize = Integer.parseInt(header[1]);
+            long fileSize = Long.parseLong(header[2]);
+            int chunkCount = Integer.parseInt(header[3]);
+            if (chunkSize <= 0 || fileSize < 0 || chunkCount != chunkCount(fileSize, chunkSize)) {
+                throw new IOException("Corrupt Merkle manifest, " + chunkCount + " chunks for " + fileSize
+                        + " bytes in chunks of " + chunkSize + ": " + file);
+            }
+            // A consistent header can still claim far more lines than the file has
+            List<byte[]> leaves = new ArrayList<>(Math.min(chunkCount, 1 << 16));
+            for (int i = 0; i < chunkCount; i++) {
+                leaves.add(hexToBytes(in.readLine()));
+            }
+            String root = in.readLine();
+            MerkleManifest manifest = new MerkleManifest(chunkSize, fileSize, leaves);
+            if (root == null || !root.equals("root " + Hex.toHex(manifest.root()))) {
+                throw new IOException("Corrupt Merkle manifest, root does not match the chunks: " + file);
+            }
+            return manifest;
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new IOException("Corrupt Merkle manifest: " + file, e);
+        }
+    }
+
+    // A record compares its List<byte[]> by array identity, so these compare the leaf contents
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof MerkleManifest manifest) || chunkSize != manifest.chunkSize
+                || fileSize != manifest.fileSize || leaves.size() != manifest.leaves.size()) {
+            return false;
+        }
+        for (int i = 0; i < leaves.size(); i++) {
+            if (!Arrays.equals(leaves.get(i), manifest.leaves.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 31 * Integer.hashCode(chunkSize) + Long.hashCode(fileSize);
+        for (byte[] leaf : leaves) {
+            hash = 31 * hash + Arrays.hashCode(leaf);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "MerkleManifest[chunkSize=" + chunkSize + ", fileSize=" + fileSize + ", chunks=" + leaves.size()
+                + ", root=" + Hex.toHex(root()) + "]";
+    }
+
+    boolean sameLeaf(int chunk, byte[] hash) {
+        return chunk < leaves.size() && Arrays.equals(leaves.get(chunk), hash);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        if (hex == null || hex.length() != 64) {
+            throw new IllegalArgumentException("Bad chunk hash: " + hex);
+        }
+        return Hex.decode(hex);
+    }
+}
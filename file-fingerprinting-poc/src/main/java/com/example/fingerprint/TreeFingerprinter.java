@@ -0,0 +1,143 @@
+package com.example.fingerprint;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Fingerprints of every regular file under a directory.
+ * <p>
+ * One thread walks the tree and hands files to a fixed pool of {@code threads} workers, each with its own
+ * {@link FileDigester} and {@link Hasher}. At most {@code 4 * threads} files are queued at a time, so
+ * memory stays flat on trees with millions of files. With a {@link FingerprintCache}, files whose size,
+ * modification time and inode are unchanged take their fingerprint from the cache and are not opened.
+ * Symbolic links are not followed.
+ */
+public class TreeFingerprinter {
+
+    /**
+     * @param fingerprints hex fingerprint by path, sorted
+     * @param errors       files that could not be read or hashed, with the reason
+     */
+    public record Result(SortedMap<Path, String> fingerprints, SortedMap<Path, String> errors,
+                         long hashedFiles, long cachedFiles, long bytesRead) {
+    }
+
+    private final int threads;
+    private final HashAlgorithm algorithm;
+    private final FingerprintCache cache;
+    private final Supplier<Hasher> hashers;
+
+    public TreeFingerprinter(int threads, FingerprintCache cache) {
+        this(threads, HashAlgorithm.SHA256, cache);
+    }
+
+    /**
+     * @param cache opened for the same {@code algorithm}, or {@code null}
+     */
+    public TreeFingerprinter(int threads, HashAlgorithm algorithm, FingerprintCache cache) {
+        this(threads, algorithm, cache, algorithm::newHasher);
+    }
+
+    TreeFingerprinter(int threads, HashAlgorithm algorithm, FingerprintCache cache, Supplier<Hasher> hashers) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        if (cache != null && cache.algorithm() != algorithm) {
+            throw new IllegalArgumentException("Cache holds " + cache.algorithm() + " fingerprints, not " + algorithm);
+        }
+        this.threads = threads;
+        this.algorithm = algorithm;
+        this.cache = cache;
+        this.hashers = hashers;
+    }
+
+    public Result fingerprint(Path root) throws IOException, InterruptedException {
+        Map<Path, String> fingerprints = new ConcurrentHashMap<>();
+        Map<Path, String> errors = new ConcurrentHashMap<>();
+        AtomicLong hashedFiles = new AtomicLong();
+        AtomicLong cachedFiles = new AtomicLong();
+        AtomicLong bytesRead = new AtomicLong();
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(hashers.get()));
+        Semaphore queued = new Semaphore(4 * threads);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Files.walkFileTree(root.toAbsolutePath().normalize(), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    if (!attributes.isRegularFile()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    String cached = cache == null ? null : cache.lookup(file, attributes);
+                    if (cached != null) {
+                        fingerprints.put(file, cached);
+                        cachedFiles.incrementAndGet();
+                        return FileVisitResult.CONTINUE;
+                    }
+                    queued.acquireUninterruptibly();
+                    pool.execute(() -> {
+                        try {
+                            String fingerprint = workers.get().fingerprint(file, bytesRead);
+                            fingerprints.put(file, fingerprint);
+                            hashedFiles.incrementAndGet();
+                            if (cache != null) {
+                                cache.store(file, attributes, fingerprint);
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            // Anything escaping here would be lost in the pool and the file silently missing
+                            errors.put(file, e.toString());
+                        } finally {
+                            queued.release();
+                        }
+                    });
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    errors.put(file, e.toString());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        return new Result(new TreeMap<>(fingerprints), new TreeMap<>(errors),
+                hashedFiles.get(), cachedFiles.get(), bytesRead.get());
+    }
+
+    private static final class Worker {
+        final FileDigester digester = new FileDigester();
+        final Hasher hasher;
+
+        Worker(Hasher hasher) {
+            this.hasher = hasher;
+        }
+
+        String fingerprint(Path file, AtomicLong bytesRead) throws IOException {
+            try {
+                bytesRead.addAndGet(digester.update(file, hasher));
+            } catch (IOException | RuntimeException e) {
+                // Drop the partial input so the next file starts clean
+                hasher.digest();
+                throw e;
+            }
+            return Hex.toHex(hasher.digest());
+        }
+    }
+}
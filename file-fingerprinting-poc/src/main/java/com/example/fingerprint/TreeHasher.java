@@ -0,0 +1,100 @@
+package com.example.fingerprint;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming form of the {@link MerkleManifest} root: SHA-256 leaves over fixed chunks, combined into a binary
+ * tree. For the same chunk size the digest equals {@link MerkleManifest#root()}.
+ * <p>
+ * Like BLAKE3's tree mode, the leaves are independent, so the work can be split across cores, which
+ * {@link MerkleFingerprinter} does. On one stream it costs slightly more than plain SHA-256. Only one subtree
+ * root per tree level is kept, in {@code stack}: finished subtrees of equal height are merged as soon as both
+ * exist.
+ */
+final class TreeHasher implements Hasher {
+
+    private final int chunkSize;
+    private final MessageDigest leaf = MerkleManifest.sha256();
+    private final MessageDigest node = MerkleManifest.sha256();
+    private final List<byte[]> stack = new ArrayList<>();
+    private final List<Integer> heights = new ArrayList<>();
+    private int filled;
+    private long leaves;
+
+    TreeHasher(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        leaf.update(MerkleManifest.LEAF);
+    }
+
+    @Override
+    public void update(byte[] data, int offset, int length) {
+        update(ByteBuffer.wrap(data, offset, length));
+    }
+
+    @Override
+    public void update(ByteBuffer data) {
+        while (data.hasRemaining()) {
+            // A full chunk is only closed once more data follows, so an exact multiple ends without an empty leaf
+            if (filled == chunkSize) {
+                push(finishLeaf());
+            }
+            int take = Math.min(data.remaining(), chunkSize - filled);
+            int limit = data.limit();
+            data.limit(data.position() + take);
+            leaf.update(data);
+            data.limit(limit);
+            filled += take;
+        }
+    }
+
+    @Override
+    public byte[] digest() {
+        if (filled > 0 || leaves == 0) {
+            push(finishLeaf());
+        }
+        byte[] root = stack.remove(stack.size() - 1);
+        while (!stack.isEmpty()) {
+            root = combine(stack.remove(stack.size() - 1), root);
+        }
+        heights.clear();
+        leaves = 0;
+        return root;
+    }
+
+    @Override
+    public int digestLength() {
+        return 32;
+    }
+
+    private byte[] finishLeaf() {
+        byte[] hash = leaf.digest();
+        leaf.update(MerkleManifest.LEAF);
+        filled = 0;
+        leaves++;
+        return hash;
+    }
+
+    private void push(byte[] hash) {
+        int height = 0;
+        while (!heights.isEmpty() && heights.get(heights.size() - 1) == height) {
+            heights.remove(heights.size() - 1);
+            hash = combine(stack.remove(stack.size() - 1), hash);
+            height++;
+        }
+        stack.add(hash);
+        heights.add(height);
+    }
+
+    private byte[] combine(byte[] left, byte[] right) {
+        node.update(MerkleManifest.NODE);
+        node.update(left);
+        node.update(right);
+        return node.digest();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.fingerprint;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * xxHash64 with seed 0. The digest is the 64-bit hash in big-endian order, as {@code xxhsum} prints it.
+ * <p>
+ * Input is consumed in 32-byte stripes across four independent accumulators; a partial stripe waits in
+ * {@code pending} until the next update or the digest.
+ */
+final class Xxh64Hasher implements Hasher {
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private final ByteBuffer pending = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long total;
+
+    Xxh64Hasher() {
+        reset();
+    }
+
+    @Override
+    public void update(byte[] data, int offset, int length) {
+        update(ByteBuffer.wrap(data, offset, length));
+    }
+
+    @Override
+    public void update(ByteBuffer data) {
+        ByteBuffer in = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        data.position(data.limit());
+        total += in.remaining();
+
+        if (pending.position() > 0) {
+            int take = Math.min(pending.remaining(), in.remaining());
+            pending.put(pending.position(), in, in.position(), take);
+            pending.position(pending.position() + take);
+            in.position(in.position() + take);
+            if (pending.hasRemaining()) {
+                return;
+            }
+            stripe(pending, 0);
+            pending.clear();
+        }
+        int position = in.position();
+        int end = in.limit() - 32;
+        for (; position <= end; position += 32) {
+            stripe(in, position);
+        }
+        pending.put(0, in, position, in.limit() - position);
+        pending.position(in.limit() - position);
+    }
+
+    @Override
+    public byte[] digest() {
+        long hash;
+        if (total >= 32) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = P5;
+        }
+        hash += total;
+
+        int length = pending.position();
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            hash ^= round(0, pending.getLong(i));
+            hash = Long.rotateLeft(hash, 27) * P1 + P4;
+        }
+        if (i + 4 <= length) {
+            hash ^= (pending.getInt(i) & 0xFFFFFFFFL) * P1;
+            hash = Long.rotateLeft(hash, 23) * P2 + P3;
+            i += 4;
+        }
+        for (; i < length; i++) {
+            hash ^= (pending.get(i) & 0xFFL) * P5;
+            hash = Long.rotateLeft(hash, 11) * P1;
+        }
+        hash ^= hash >>> 33;
+        hash *= P2;
+        hash ^= hash >>> 29;
+        hash *= P3;
+        hash ^= hash >>> 32;
+
+        reset();
+        return ByteBuffer.allocate(8).putLong(hash).array();
+    }
+
+    @Override
+    public int digestLength() {
+        return 8;
+    }
+
+    private void reset() {
+        v1 = P1 + P2;
+        v2 = P2;
+        v3 = 0;
+        v4 = -P1;
+        total = 0;
+        pending.clear();
+    }
+
+    private void stripe(ByteBuffer in, int position) {
+        v1 = round(v1, in.getLong(position));
+        v2 = round(v2, in.getLong(position + 8));
+        v3 = round(v3, in.getLong(position + 16));
+        v4 = round(v4, in.getLong(position + 24));
+    }
+
+    private static long round(long accumulator, long input) {
+        return Long.rotateLeft(accumulator + input * P2, 31) * P1;
+    }
+
+    private static long merge(long hash, long accumulator) {
+        return (hash ^ round(0, accumulator)) * P1 + P4;
+    }
+}
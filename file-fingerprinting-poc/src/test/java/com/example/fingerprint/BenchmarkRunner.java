@@ -0,0 +1,26 @@
+package com.example.fingerprint;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runner class for the fingerprinting benchmarks.
+ *
+ * To run all benchmarks:
+ * mvn test-compile exec:java -Dexec.mainClass="com.example.fingerprint.BenchmarkRunner" -Dexec.classpathScope=test
+ *
+ * To run specific benchmarks (e.g., only the mapped reader):
+ * mvn test-compile exec:java -Dexec.mainClass="com.example.fingerprint.BenchmarkRunner" -Dexec.classpathScope=test -Dexec.args=".*mapped.*"
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : FingerprintBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
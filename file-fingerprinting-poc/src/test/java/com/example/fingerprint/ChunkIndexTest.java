@@ -0,0 +1,107 @@
+package com.example.fingerprint;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class ChunkIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testIndexGrowsAndReopensWithEveryEntry() throws IOException {
+        Path file = directory.resolve("index");
+        Random random = new Random(9);
+        List<byte[]> hashes = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            byte[] hash = new byte[32];
+            random.nextBytes(hash);
+            hashes.add(hash);
+        }
+
+        // 1024 slots hold 716 entries, so 5000 grow the table three times
+        try (ChunkIndex index = ChunkIndex.open(file, 1024)) {
+            for (byte[] hash : hashes) {
+                Assertions.assertTrue(index.add(hash, 100));
+            }
+            Assertions.assertEquals(5_000, index.size());
+            Assertions.assertFalse(index.add(hashes.get(0), 100));
+        }
+        try (ChunkIndex index = ChunkIndex.open(file)) {
+            Assertions.assertEquals(5_000, index.size());
+            for (byte[] hash : hashes) {
+                Assertions.assertTrue(index.contains(hash));
+                Assertions.assertFalse(index.add(hash, 100));
+            }
+            byte[] unknown = new byte[32];
+            random.nextBytes(unknown);
+            Assertions.assertFalse(index.contains(unknown));
+        }
+        try (var files = Files.list(directory)) {
+            Assertions.assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    void testHashesSharingASlotAreKeptApart() throws IOException {
+        try (ChunkIndex index = ChunkIndex.open(directory.resolve("index"), 1024)) {
+            byte[] first = new byte[32];
+            byte[] second = new byte[32];
+            second[31] = 1;
+
+            Assertions.assertTrue(index.add(first, 1));
+            Assertions.assertTrue(index.add(second, 2));
+            Assertions.assertEquals(2, index.size());
+            Assertions.assertTrue(index.contains(second));
+        }
+    }
+
+    @Test
+    void testRejectsAFileThatIsNotAnIndex() throws IOException {
+        Path file = Files.write(directory.resolve("index"), new byte[64]);
+
+        Assertions.assertThrows(IOException.class, () -> ChunkIndex.open(file));
+        Assertions.assertArrayEquals(new byte[64], Files.readAllBytes(file));
+    }
+
+    @Test
+    void testRejectsShortFilesWithoutExtendingThem() throws IOException {
+        Path file = Files.write(directory.resolve("index"), new byte[]{1, 2, 3});
+
+        Assertions.assertThrows(IOException.class, () -> ChunkIndex.open(file));
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(file));
+
+        // A valid header whose table was cut off
+        Path cut = directory.resolve("cut");
+        try (ChunkIndex index = ChunkIndex.open(cut, 1024)) {
+            index.add(new byte[32], 1);
+        }
+        byte[] truncated = Arrays.copyOf(Files.readAllBytes(cut), ChunkIndex.HEADER_BYTES + 100);
+        Files.write(cut, truncated);
+
+        Assertions.assertThrows(IOException.class, () -> ChunkIndex.open(cut));
+        Assertions.assertEquals(truncated.length, Files.size(cut));
+    }
+
+    @Test
+    void testSmallIndexFileHoldsOnlyItsSlots() throws IOException {
+        Path file = directory.resolve("index");
+        try (ChunkIndex index = ChunkIndex.open(file, 1024)) {
+            index.add(new byte[32], 1);
+        }
+
+        Assertions.assertEquals(ChunkIndex.HEADER_BYTES + 1024L * ChunkIndex.SLOT_BYTES, Files.size(file));
+        try (ChunkIndex index = ChunkIndex.open(file)) {
+            Assertions.assertTrue(index.contains(new byte[32]));
+        }
+    }
+}
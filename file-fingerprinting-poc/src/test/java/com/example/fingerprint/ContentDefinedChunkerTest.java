@@ -0,0 +1,96 @@
+package com.example.fingerprint;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ContentDefinedChunkerTest {
+
+    private final ContentDefinedChunker chunker = new ContentDefinedChunker(256, 1024, 8192);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testChunksCoverTheFileWithinTheSizeLimits() throws IOException {
+        byte[] content = randomBytes(3 << 20, 1);
+        List<long[]> chunks = chunks(Files.write(directory.resolve("data"), content));
+
+        long next = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            long[] chunk = chunks.get(i);
+            Assertions.assertEquals(next, chunk[0]);
+            Assertions.assertTrue(chunk[1] <= 8192, "chunk " + i + " is " + chunk[1] + " bytes");
+            Assertions.assertTrue(chunk[1] >= 256 || i == chunks.size() - 1, "chunk " + i + " is " + chunk[1] + " bytes");
+            next += chunk[1];
+        }
+        Assertions.assertEquals(content.length, next);
+    }
+
+    @Test
+    void testInsertionNearTheStartKeepsLaterBoundaries() throws IOException {
+        byte[] original = randomBytes(1 << 20, 2);
+        byte[] inserted = new byte[original.length + 10];
+        System.arraycopy(original, 0, inserted, 0, 100);
+        System.arraycopy(randomBytes(10, 3), 0, inserted, 100, 10);
+        System.arraycopy(original, 100, inserted, 110, original.length - 100);
+
+        List<Long> before = boundaries(Files.write(directory.resolve("original"), original));
+        List<Long> after = boundaries(Files.write(directory.resolve("inserted"), inserted));
+
+        // Past the chunk holding the insertion, every boundary is the old one moved by the 10 new bytes
+        int moved = 0;
+        for (long boundary : before) {
+            if (boundary > 8192 + 100) {
+                Assertions.assertTrue(after.contains(boundary + 10), "boundary " + boundary + " was lost");
+                moved++;
+            }
+        }
+        Assertions.assertTrue(moved > 100, moved + " boundaries compared");
+        Assertions.assertTrue(after.size() - before.size() <= 2);
+    }
+
+    @Test
+    void testInsertedFileDeduplicatesAgainstTheOriginal() throws IOException {
+        byte[] original = randomBytes(1 << 20, 4);
+        byte[] inserted = new byte[original.length + 1];
+        System.arraycopy(original, 0, inserted, 0, 5000);
+        System.arraycopy(original, 5000, inserted, 5001, original.length - 5000);
+
+        try (ChunkIndex index = ChunkIndex.open(directory.resolve("index"))) {
+            Deduplicator deduplicator = new Deduplicator(chunker, index);
+            deduplicator.add(Files.write(directory.resolve("original"), original));
+            long uniqueBytes = deduplicator.report().uniqueBytes();
+            deduplicator.add(Files.write(directory.resolve("inserted"), inserted));
+
+            Assertions.assertTrue(deduplicator.report().uniqueBytes() - uniqueBytes <= 2 * 8192);
+        }
+    }
+
+    private List<long[]> chunks(Path file) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        chunker.chunk(file, (offset, data, start, length) -> chunks.add(new long[]{offset, length}));
+        return chunks;
+    }
+
+    private List<Long> boundaries(Path file) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        for (long[] chunk : chunks(file)) {
+            boundaries.add(chunk[0] + chunk[1]);
+        }
+        return boundaries;
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.fingerprint;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class FileDigesterTest {
+
+    // Block size for DIRECT and window size for MAPPED, small enough to cross with tiny files
+    private static final int BLOCK = 4096;
+
+    @TempDir
+    Path tempDir;
+
+    static Stream<Arguments> modesAndSizes() {
+        return Stream.of(FileDigester.Mode.values()).flatMap(mode ->
+                Stream.of(0, 1, BLOCK - 1, BLOCK, BLOCK + 1, 3 * BLOCK + 17).map(size -> Arguments.of(mode, size)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("modesAndSizes")
+    void testMatchesMessageDigestOverTheWholeFile(FileDigester.Mode mode, int size) throws Exception {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        Path file = Files.write(tempDir.resolve("data.bin"), data);
+        FileDigester digester = new FileDigester(mode, BLOCK, BLOCK);
+
+        Hasher hasher = HashAlgorithm.SHA256.newHasher();
+        Assertions.assertEquals(size, digester.update(file, hasher));
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file));
+        Assertions.assertArrayEquals(expected, hasher.digest());
+
+        // The buffer is reused, so a second call on the same digester must not see the first one's bytes
+        Assertions.assertArrayEquals(expected, digester.digest(file, HashAlgorithm.SHA256.newHasher()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("modesAndSizes")
+    void testDefaultSizesMatchMessageDigest(FileDigester.Mode mode, int size) throws Exception {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        Path file = Files.write(tempDir.resolve("data.bin"), data);
+
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file));
+        Assertions.assertArrayEquals(expected,
+                new FileDigester(mode, FileDigester.DEFAULT_BUFFER_SIZE).digest(file, HashAlgorithm.SHA256.newHasher()));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.fingerprint;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+public class FileFingerprinterTest {
+
+    @Test
+    void testBadOptionsPrintUsage() {
+        Assertions.assertTrue(run("--tree", ".", "--threads").contains("Missing value after --threads."));
+        Assertions.assertTrue(run("--merkle", "file", "--chunk-size").contains("Missing value after --chunk-size."));
+        Assertions.assertTrue(run("--dedup", "file", "--index").contains("Missing value after --index."));
+        Assertions.assertTrue(run("--algorithm", "md4", "file").contains("Unknown hash algorithm: md4"));
+        Assertions.assertTrue(run("--tree", ".", "--algorithm", "md4").contains("Unknown hash algorithm: md4"));
+        Assertions.assertTrue(run("--tree", ".", "--threads", "many").contains("Usage:"));
+    }
+
+    private static String run(String... args) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            FileFingerprinter.main(args);
+        } finally {
+            System.setOut(out);
+        }
+        String output = captured.toString(StandardCharsets.UTF_8);
+        Assertions.assertTrue(output.contains("Usage:"), output);
+        return output;
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.fingerprint;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * SHA-256 throughput over a file of random bytes. The {@code megabytes} counter reports MB/s.
+ * <p>
+ * {@code legacyByteByByte} is the original {@code DigestInputStream.read()} loop, which makes one read call per
+ * byte, so it only gets a small file of its own; MB/s makes it comparable with the rest.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FingerprintBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LargeFile {
+        @Param({"16", "1024"})
+        private int fileSizeMb;
+
+        Path file;
+        long size;
+
+        @Setup
+        public void setup() throws IOException {
+            file = createFile(fileSizeMb * 1024L * 1024);
+            size = Files.size(file);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SizedFile {
+        @Param({"4", "1024", "262144"})
+        private int fileSizeKb;
+
+        Path file;
+        long size;
+
+        @Setup
+        public void setup() throws IOException {
+            file = createFile(fileSizeKb * 1024L);
+            size = Files.size(file);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Algorithm {
+        @Param({"SHA256", "CRC32C", "XXH64", "TREE"})
+        private HashAlgorithm algorithm;
+
+        Hasher hasher;
+
+        @Setup
+        public void setup() {
+            hasher = algorithm.newHasher();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SmallFile {
+        Path file;
+        long size;
+
+        @Setup
+        public void setup() throws IOException {
+            file = createFile(1024 * 1024);
+            size = Files.size(file);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 10,000 files of 4-64 KB in 100 directories, dated an hour back so the cache keeps them.
+     */
+    @State(Scope.Benchmark)
+    public static class Tree {
+        @Param({"1", "4"})
+        private int threads;
+
+        Path root;
+        Path cacheFile;
+
+        @Setup
+        public void setup() throws IOException, InterruptedException {
+            root = Files.createTempDirectory("fingerprint-tree");
+            Random random = new Random(42);
+            FileTime anHourAgo = FileTime.fromMillis(System.currentTimeMillis() - 3_600_000);
+            for (int i = 0; i < 10_000; i++) {
+                Path directory = Files.createDirectories(root.resolve("dir" + i % 100));
+                byte[] content = new byte[4096 + random.nextInt(60 * 1024)];
+                random.nextBytes(content);
+                Path file = Files.write(directory.resolve("file" + i + ".bin"), content);
+                Files.setLastModifiedTime(file, anHourAgo);
+            }
+            cacheFile = root.resolveSibling(root.getFileName() + ".cache");
+            FingerprintCache cache = FingerprintCache.open(cacheFile);
+            new TreeFingerprinter(threads, cache).fingerprint(root);
+            cache.save();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+            Files.deleteIfExists(cacheFile);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Merkle {
+        @Param({"1", "4"})
+        private int merkleThreads;
+
+        MerkleFingerprinter fingerprinter;
+
+        @Setup
+        public void setup() {
+            fingerprinter = new MerkleFingerprinter(MerkleFingerprinter.DEFAULT_CHUNK_SIZE, merkleThreads);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Dedup {
+        ContentDefinedChunker chunker = new ContentDefinedChunker();
+        Path indexFile;
+        ChunkIndex index;
+        Deduplicator deduplicator;
+
+        @Setup
+        public void setup() throws IOException {
+            indexFile = Files.createTempFile("fingerprint-bench", ".index");
+            Files.delete(indexFile);
+            index = ChunkIndex.open(indexFile);
+            deduplicator = new Deduplicator(chunker, index);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            index.close();
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Digests {
+        MessageDigest sha256;
+        Hasher sha256Hasher;
+        byte[] fingerprint = new byte[32];
+        byte[] hexDigits = new byte[64];
+        FileDigester direct = new FileDigester(FileDigester.Mode.DIRECT, FileDigester.DEFAULT_BUFFER_SIZE);
+        FileDigester mapped = new FileDigester(FileDigester.Mode.MAPPED, FileDigester.DEFAULT_BUFFER_SIZE);
+
+        @Setup
+        public void setup() throws NoSuchAlgorithmException {
+            sha256 = MessageDigest.getInstance("SHA-256");
+            sha256Hasher = HashAlgorithm.of(sha256);
+            new Random(42).nextBytes(fingerprint);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+
+        void add(long bytes) {
+            megabytes += bytes / 1e6;
+        }
+    }
+
+    @Benchmark
+    public byte[] legacyByteByByte(SmallFile file, Digests digests, Throughput throughput) throws IOException {
+        MessageDigest md = digests.sha256;
+        md.reset();
+        try (InputStream is = new FileInputStream(file.file.toFile());
+             DigestInputStream dis = new DigestInputStream(is, md)) {
+            while (dis.read() != -1) ;
+        }
+        throughput.add(file.size);
+        return md.digest();
+    }
+
+    @Benchmark
+    public byte[] bufferedStream(LargeFile file, Digests digests, Throughput throughput) throws IOException {
+        MessageDigest md = digests.sha256;
+        md.reset();
+        byte[] buffer = new byte[8192];
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file.file.toFile()))) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+        }
+        throughput.add(file.size);
+        return md.digest();
+    }
+
+    @Benchmark
+    public byte[] directBuffer(LargeFile file, Digests digests, Throughput throughput) throws IOException {
+        byte[] digest = digests.direct.digest(file.file, digests.sha256Hasher);
+        throughput.add(file.size);
+        return digest;
+    }
+
+    @Benchmark
+    public byte[] mapped(LargeFile file, Digests digests, Throughput throughput) throws IOException {
+        byte[] digest = digests.mapped.digest(file.file, digests.sha256Hasher);
+        throughput.add(file.size);
+        return digest;
+    }
+
+    /**
+     * The algorithm x file size matrix, all through a {@code DIRECT} {@link FileDigester}.
+     */
+    @Benchmark
+    public byte[] algorithm(SizedFile file, Algorithm algorithm, Digests digests, Throughput throughput) throws IOException {
+        byte[] digest = digests.direct.digest(file.file, algorithm.hasher);
+        throughput.add(file.size);
+        return digest;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String hexFormat(Digests digests) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digests.fingerprint) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String hexTable(Digests digests) {
+        return Hex.toHex(digests.fingerprint);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] hexInto(Digests digests) {
+        Hex.encode(digests.fingerprint, digests.hexDigits, 0);
+        return digests.hexDigits;
+    }
+
+    @Benchmark
+    public byte[] merkle(LargeFile file, Merkle merkle, Throughput throughput) throws IOException {
+        byte[] root = merkle.fingerprinter.fingerprint(file.file).root();
+        throughput.add(file.size);
+        return root;
+    }
+
+    @Benchmark
+    public long chunking(LargeFile file, Dedup dedup, Throughput throughput) throws IOException {
+        long chunks = dedup.chunker.chunk(file.file, (offset, data, start, length) -> { });
+        throughput.add(file.size);
+        return chunks;
+    }
+
+    /**
+     * Chunking, SHA-256 per chunk and an index lookup; after the first call every chunk is a duplicate.
+     */
+    @Benchmark
+    public Deduplicator.Report dedup(LargeFile file, Dedup dedup, Throughput throughput) throws IOException {
+        dedup.deduplicator.add(file.file);
+        throughput.add(file.size);
+        return dedup.deduplicator.report();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TreeFingerprinter.Result treeCold(Tree tree) throws IOException, InterruptedException {
+        return new TreeFingerprinter(tree.threads, null).fingerprint(tree.root);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TreeFingerprinter.Result treeCached(Tree tree) throws IOException, InterruptedException {
+        return new TreeFingerprinter(tree.threads, FingerprintCache.open(tree.cacheFile)).fingerprint(tree.root);
+    }
+
+    private static Path createFile(long size) throws IOException {
+        Path file = Files.createTempFile("fingerprint-bench", ".bin");
+        byte[] block = new byte[1 << 20];
+        Random random = new Random(42);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += block.length) {
+                random.nextBytes(block);
+                out.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.fingerprint;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+public class FingerprintCacheTest {
+
+    // Old enough to be outside the racy window, so the cache remembers the files
+    private static final FileTime OLD = FileTime.from(Instant.now().minus(1, ChronoUnit.DAYS));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSavedEntriesAreServedFromTheCacheNextRun() throws Exception {
+        Path tree = Files.createDirectories(directory.resolve("tree"));
+        Path cacheFile = directory.resolve("cache");
+        writeOld(tree.resolve("a"), "first");
+        writeOld(tree.resolve("b"), "second");
+
+        TreeFingerprinter.Result first = fingerprint(tree, cacheFile);
+        FingerprintCache reopened = FingerprintCache.open(cacheFile);
+        TreeFingerprinter.Result second = new TreeFingerprinter(2, reopened).fingerprint(tree);
+
+        Assertions.assertEquals(2, first.hashedFiles());
+        Assertions.assertEquals(0, second.hashedFiles());
+        Assertions.assertEquals(2, second.cachedFiles());
+        Assertions.assertEquals(first.fingerprints(), second.fingerprints());
+        Assertions.assertEquals(2, reopened.size());
+    }
+
+    @Test
+    void testChangedModificationTimeForcesARehash() throws Exception {
+        Path tree = Files.createDirectories(directory.resolve("tree"));
+        Path cacheFile = directory.resolve("cache");
+        Path file = writeOld(tree.resolve("a"), "content");
+        writeOld(tree.resolve("b"), "unchanged");
+        fingerprint(tree, cacheFile);
+
+        Files.setLastModifiedTime(file, FileTime.from(OLD.toInstant().plusSeconds(1)));
+        TreeFingerprinter.Result result = fingerprint(tree, cacheFile);
+
+        Assertions.assertEquals(1, result.hashedFiles());
+        Assertions.assertEquals(1, result.cachedFiles());
+    }
+
+    @Test
+    void testChangedSizeForcesARehash() throws Exception {
+        Path tree = Files.createDirectories(directory.resolve("tree"));
+        Path cacheFile = directory.resolve("cache");
+        Path file = writeOld(tree.resolve("a"), "content");
+        TreeFingerprinter.Result before = fingerprint(tree, cacheFile);
+
+        // Same modification time, so only the size gives the change away
+        writeOld(file, "longer content");
+        TreeFingerprinter.Result after = fingerprint(tree, cacheFile);
+
+        Assertions.assertEquals(1, after.hashedFiles());
+        Assertions.assertEquals(FileFingerprinter.calculate(file, HashAlgorithm.SHA256), after.fingerprints().values().iterator().next());
+        Assertions.assertNotEquals(before.fingerprints(), after.fingerprints());
+    }
+
+    @Test
+    void testRecentlyModifiedFilesAreNotRemembered() throws Exception {
+        Path tree = Files.createDirectories(directory.resolve("tree"));
+        Path cacheFile = directory.resolve("cache");
+        Files.writeString(tree.resolve("a"), "just written");
+
+        fingerprint(tree, cacheFile);
+
+        Assertions.assertEquals(1, fingerprint(tree, cacheFile).hashedFiles());
+    }
+
+    @Test
+    void testCacheOfAnotherAlgorithmStartsEmpty() throws Exception {
+        Path tree = Files.createDirectories(directory.resolve("tree"));
+        Path cacheFile = directory.resolve("cache");
+        writeOld(tree.resolve("a"), "content");
+        fingerprint(tree, cacheFile);
+
+        FingerprintCache cache = FingerprintCache.open(cacheFile, HashAlgorithm.CRC32C);
+        TreeFingerprinter.Result result = new TreeFingerprinter(1, HashAlgorithm.CRC32C, cache).fingerprint(tree);
+
+        Assertions.assertEquals(1, result.hashedFiles());
+    }
+
+    @Test
+    void testCacheOfAnOlderFormatStartsEmpty() throws Exception {
+        Path tree = Files.createDirectories(directory.resolve("tree"));
+        Path cacheFile = directory.resolve("cache");
+        writeOld(tree.resolve("a"), "content");
+        // Magic of the format before the file key was stored
+        Files.write(cacheFile, new byte[]{0x46, 0x50, 0x43, 0x31, 0, 0});
+
+        TreeFingerprinter.Result first = fingerprint(tree, cacheFile);
+        TreeFingerprinter.Result second = fingerprint(tree, cacheFile);
+
+        Assertions.assertEquals(1, first.hashedFiles());
+        Assertions.assertEquals(1, second.cachedFiles());
+    }
+
+    @Test
+    void testTruncatedCacheStartsEmpty() throws Exception {
+        Path tree = Files.createDirectories(directory.resolve("tree"));
+        Path cacheFile = directory.resolve("cache");
+        writeOld(tree.resolve("a"), "content");
+        writeOld(tree.resolve("b"), "more content");
+        fingerprint(tree, cacheFile);
+        byte[] saved = Files.readAllBytes(cacheFile);
+        Files.write(cacheFile, Arrays.copyOf(saved, saved.length - 10));
+
+        FingerprintCache cache = FingerprintCache.open(cacheFile);
+
+        Assertions.assertEquals(2, new TreeFingerprinter(1, cache).fingerprint(tree).hashedFiles());
+    }
+
+    private static TreeFingerprinter.Result fingerprint(Path tree, Path cacheFile) throws IOException, InterruptedException {
+        FingerprintCache cache = FingerprintCache.open(cacheFile);
+        TreeFingerprinter.Result result = new TreeFingerprinter(2, cache).fingerprint(tree);
+        cache.save();
+        return result;
+    }
+
+    private static Path writeOld(Path file, String content) throws IOException {
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, OLD);
+        return file;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.fingerprint;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HexTest {
+
+    @Test
+    void testEncodesLowercaseDigits() {
+        Assertions.assertEquals("", Hex.toHex(new byte[0]));
+        Assertions.assertEquals("00017f80ff", Hex.toHex(new byte[]{0, 1, 127, -128, -1}));
+    }
+
+    @Test
+    void testEncodeWritesAtTheOffset() {
+        byte[] out = "[....]".getBytes();
+
+        Hex.encode(new byte[]{(byte) 0xAB, 0x0C}, out, 1);
+
+        Assertions.assertEquals("[ab0c]", new String(out));
+    }
+
+    @Test
+    void testDecodeReversesEncode() {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+
+        Assertions.assertArrayEquals(bytes, Hex.decode(Hex.toHex(bytes)));
+        Assertions.assertArrayEquals(new byte[]{(byte) 0xAB}, Hex.decode("AB"));
+    }
+
+    @Test
+    void testDecodeRejectsMalformedInput() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Hex.decode("abc"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Hex.decode("zz"));
+    }
+}
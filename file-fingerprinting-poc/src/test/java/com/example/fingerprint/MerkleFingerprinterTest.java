@@ -0,0 +1,162 @@
+package com.example.fingerprint;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+public class MerkleFingerprinterTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final MerkleFingerprinter fingerprinter = new MerkleFingerprinter(CHUNK_SIZE, 3);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testManifestRoundTrips() throws IOException {
+        Path file = write("data", randomBytes(10 * CHUNK_SIZE + 100));
+        MerkleManifest manifest = fingerprinter.fingerprint(file);
+        Path manifestFile = directory.resolve("data.merkle");
+
+        manifest.writeTo(manifestFile);
+        MerkleManifest read = MerkleManifest.read(manifestFile);
+
+        Assertions.assertEquals(11, read.chunkCount());
+        Assertions.assertEquals(manifest.fileSize(), read.fileSize());
+        Assertions.assertEquals(CHUNK_SIZE, read.chunkSize());
+        Assertions.assertArrayEquals(manifest.root(), read.root());
+        Assertions.assertTrue(fingerprinter.verify(file, read).isEmpty());
+    }
+
+    @Test
+    void testManifestsCompareByLeafContent() throws IOException {
+        Path file = write("data", randomBytes(3 * CHUNK_SIZE + 200));
+        MerkleManifest manifest = fingerprinter.fingerprint(file);
+        Path manifestFile = directory.resolve("data.merkle");
+        manifest.writeTo(manifestFile);
+
+        MerkleManifest read = MerkleManifest.read(manifestFile);
+        Assertions.assertEquals(manifest, read);
+        Assertions.assertEquals(manifest.hashCode(), read.hashCode());
+
+        List<byte[]> leaves = new ArrayList<>(manifest.leaves());
+        byte[] changed = leaves.get(2).clone();
+        changed[0] ^= 1;
+        leaves.set(2, changed);
+        Assertions.assertNotEquals(manifest, new MerkleManifest(CHUNK_SIZE, manifest.fileSize(), leaves));
+        Assertions.assertNotEquals(manifest, new MerkleManifest(CHUNK_SIZE, manifest.fileSize() - 100, manifest.leaves()));
+    }
+
+    @Test
+    void testHeaderClaimingMoreChunksThanTheSizeIsRejected() throws IOException {
+        Path manifestFile = directory.resolve("data.merkle");
+        for (String header : new String[]{"1024 10 2147483647", "1024 5000 4", "0 10 1", "1024 -1 1", "1 9223372036854775807 1"}) {
+            Files.writeString(manifestFile, MerkleManifest.HEADER + " " + header + "\n");
+
+            Assertions.assertThrows(IOException.class, () -> MerkleManifest.read(manifestFile), header);
+        }
+    }
+
+    @Test
+    void testCorruptManifestIsRejected() throws IOException {
+        Path file = write("data", randomBytes(3 * CHUNK_SIZE));
+        Path manifestFile = directory.resolve("data.merkle");
+        fingerprinter.fingerprint(file).writeTo(manifestFile);
+        String text = Files.readString(manifestFile);
+        int leaf = text.indexOf('\n') + 1;
+        Files.writeString(manifestFile, text.substring(0, leaf) + (text.charAt(leaf) == '0' ? '1' : '0') + text.substring(leaf + 1));
+
+        Assertions.assertThrows(IOException.class, () -> MerkleManifest.read(manifestFile));
+    }
+
+    @Test
+    void testOneChangedByteIsReportedInItsChunk() throws IOException {
+        byte[] content = randomBytes(10 * CHUNK_SIZE + 100);
+        Path file = write("data", content);
+        MerkleManifest manifest = fingerprinter.fingerprint(file);
+
+        content[5 * CHUNK_SIZE + 3] ^= 1;
+        Files.write(file, content);
+        BitSet changed = fingerprinter.verify(file, manifest);
+
+        Assertions.assertEquals(BitSet.valueOf(new long[]{1L << 5}), changed);
+        Assertions.assertArrayEquals(fingerprinter.fingerprint(file).root(), fingerprinter.rehash(file, manifest, changed).root());
+    }
+
+    @Test
+    void testChangeInTheLastPartialChunk() throws IOException {
+        byte[] content = randomBytes(10 * CHUNK_SIZE + 100);
+        Path file = write("data", content);
+        MerkleManifest manifest = fingerprinter.fingerprint(file);
+
+        content[content.length - 1] ^= 1;
+        Files.write(file, content);
+
+        Assertions.assertEquals(BitSet.valueOf(new long[]{1L << 10}), fingerprinter.verify(file, manifest));
+    }
+
+    @Test
+    void testFileOfExactlyOneChunk() throws IOException {
+        byte[] content = randomBytes(CHUNK_SIZE);
+        Path file = write("data", content);
+
+        MerkleManifest manifest = fingerprinter.fingerprint(file);
+
+        Assertions.assertEquals(1, manifest.chunkCount());
+        Assertions.assertArrayEquals(leaf(content), manifest.root());
+
+        Files.write(file, new byte[]{42}, StandardOpenOption.APPEND);
+        Assertions.assertEquals(BitSet.valueOf(new long[]{1L << 1}), fingerprinter.verify(file, manifest));
+    }
+
+    @Test
+    void testEmptyFileHasOneEmptyChunk() throws IOException {
+        Path file = write("empty", new byte[0]);
+        Path manifestFile = directory.resolve("empty.merkle");
+
+        MerkleManifest manifest = fingerprinter.fingerprint(file);
+        manifest.writeTo(manifestFile);
+
+        Assertions.assertEquals(1, manifest.chunkCount());
+        Assertions.assertArrayEquals(leaf(new byte[0]), manifest.root());
+        Assertions.assertTrue(fingerprinter.verify(file, MerkleManifest.read(manifestFile)).isEmpty());
+
+        Files.write(file, new byte[]{1});
+        Assertions.assertEquals(BitSet.valueOf(new long[]{1}), fingerprinter.verify(file, manifest));
+    }
+
+    @Test
+    void testTreeAlgorithmMatchesTheMerkleRoot() throws IOException {
+        Path file = write("data", randomBytes(MerkleFingerprinter.DEFAULT_CHUNK_SIZE + 5));
+        MerkleManifest manifest = new MerkleFingerprinter(MerkleFingerprinter.DEFAULT_CHUNK_SIZE, 2).fingerprint(file);
+
+        Assertions.assertEquals(Hex.toHex(manifest.root()), FileFingerprinter.calculate(file, HashAlgorithm.TREE));
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(directory.resolve(name), content);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] leaf(byte[] chunk) {
+        MessageDigest sha256 = MerkleManifest.sha256();
+        sha256.update(MerkleManifest.LEAF);
+        return sha256.digest(chunk);
+    }
+}
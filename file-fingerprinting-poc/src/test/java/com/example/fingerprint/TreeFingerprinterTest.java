@@ -0,0 +1,95 @@
+package com.example.fingerprint;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class TreeFingerprinterTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void testParallelFingerprintsEqualSequentialOnes() throws Exception {
+        Random random = new Random(13);
+        for (int i = 0; i < 60; i++) {
+            Path directory = Files.createDirectories(root.resolve("dir" + i % 5));
+            byte[] content = new byte[random.nextInt(200_000)];
+            random.nextBytes(content);
+            Files.write(directory.resolve("file" + i), content);
+        }
+
+        for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+            TreeFingerprinter.Result sequential = new TreeFingerprinter(1, algorithm, null).fingerprint(root);
+            TreeFingerprinter.Result parallel = new TreeFingerprinter(4, algorithm, null).fingerprint(root);
+
+            Assertions.assertEquals(60, sequential.fingerprints().size());
+            Assertions.assertEquals(sequential.fingerprints(), parallel.fingerprints(), algorithm.name());
+            Assertions.assertEquals(sequential.bytesRead(), parallel.bytesRead());
+            Assertions.assertTrue(parallel.errors().isEmpty());
+        }
+    }
+
+    @Test
+    void testHasherFailuresAreReportedAsErrors() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Files.writeString(root.resolve("file" + i), (i % 3 == 0 ? "X" : "ok") + i);
+        }
+
+        // Fails on files starting with X after taking in their bytes, the way a hasher might fail mid-file
+        TreeFingerprinter fingerprinter = new TreeFingerprinter(1, HashAlgorithm.SHA256, null, () -> new Hasher() {
+            private final Hasher sha256 = HashAlgorithm.SHA256.newHasher();
+
+            @Override
+            public void update(byte[] data, int offset, int length) {
+                sha256.update(data, offset, length);
+            }
+
+            @Override
+            public void update(ByteBuffer data) {
+                boolean rejected = data.hasRemaining() && data.get(data.position()) == 'X';
+                sha256.update(data);
+                if (rejected) {
+                    throw new IllegalStateException("unsupported input");
+                }
+            }
+
+            @Override
+            public byte[] digest() {
+                return sha256.digest();
+            }
+
+            @Override
+            public int digestLength() {
+                return sha256.digestLength();
+            }
+        });
+        TreeFingerprinter.Result result = fingerprinter.fingerprint(root);
+
+        Assertions.assertEquals(4, result.errors().size());
+        for (String error : result.errors().values()) {
+            Assertions.assertTrue(error.contains("unsupported input"), error);
+        }
+        // The one worker hashes the files after each failure from a clean state
+        Assertions.assertEquals(6, result.fingerprints().size());
+        for (var entry : result.fingerprints().entrySet()) {
+            Assertions.assertEquals(FileFingerprinter.calculate(entry.getKey(), HashAlgorithm.SHA256), entry.getValue());
+        }
+    }
+
+    @Test
+    void testFingerprintIsTheSingleFileFingerprint() throws IOException, InterruptedException {
+        Path file = Files.writeString(root.resolve("hello.txt"), "hello");
+
+        TreeFingerprinter.Result result = new TreeFingerprinter(2, null).fingerprint(root);
+
+        Assertions.assertEquals(FileFingerprinter.calculate(file, HashAlgorithm.SHA256),
+                result.fingerprints().get(file.toAbsolutePath().normalize()));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.fingerprint;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class Xxh64HasherTest {
+
+    // Reference values with seed 0, as printed by xxhsum
+    @Test
+    void testKnownVectors() {
+        Assertions.assertEquals("ef46db3751d8e999", hash(new byte[0]));
+        Assertions.assertEquals("d24ec4f1a98c6e5b", hash(ascii("a")));
+        Assertions.assertEquals("44bc2cf5ad770999", hash(ascii("abc")));
+        Assertions.assertEquals("0b242d361fda71bc", hash(ascii("The quick brown fox jumps over the lazy dog")));
+        Assertions.assertEquals("6ef436b00eba4078", hash(counting(1000)));
+    }
+
+    @Test
+    void testSplitUpdatesEqualOneUpdate() {
+        byte[] data = counting(1000);
+        String expected = hash(data);
+
+        for (int split : new int[]{1, 7, 31, 32, 33, 100}) {
+            Hasher hasher = new Xxh64Hasher();
+            for (int offset = 0; offset < data.length; offset += split) {
+                hasher.update(data, offset, Math.min(split, data.length - offset));
+            }
+            Assertions.assertEquals(expected, Hex.toHex(hasher.digest()), "updates of " + split + " bytes");
+        }
+    }
+
+    @Test
+    void testDirectBufferAndDigestReset() {
+        byte[] data = counting(1000);
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length).put(data).flip();
+        Hasher hasher = new Xxh64Hasher();
+
+        hasher.update(direct);
+
+        Assertions.assertFalse(direct.hasRemaining());
+        Assertions.assertEquals("6ef436b00eba4078", Hex.toHex(hasher.digest()));
+        Assertions.assertEquals("ef46db3751d8e999", Hex.toHex(hasher.digest()));
+    }
+
+    private static String hash(byte[] data) {
+        Hasher hasher = HashAlgorithm.XXH64.newHasher();
+        hasher.update(data, 0, data.length);
+        return Hex.toHex(hasher.digest());
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] counting(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+}
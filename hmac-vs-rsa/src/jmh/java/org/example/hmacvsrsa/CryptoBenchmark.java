@@ -1,22 +1,39 @@
 package org.example.hmacvsrsa;
 
 import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
-@BenchmarkMode(Mode.AverageTime)
+// Throughput for capacity, SampleTime for the latency distribution (p50 to p99.99) that an average hides
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
 @OutputTimeUnit(TimeUnit.MICROSECONDS)
 @State(Scope.Benchmark)
 @Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
 @Measurement(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
-@Fork(1)
+@Fork(2)
 public class CryptoBenchmark {
 
     private CryptoUtils.HmacOperations hmacSha256;
+    private Mac sharedHmacSha256;
     private CryptoUtils.HmacOperations hmacSha512;
     private CryptoUtils.RsaOperations rsa2048;
     private CryptoUtils.RsaOperations rsa4096;
@@ -33,8 +50,7 @@ public class CryptoBenchmark {
     private CryptoUtils.AesOperations.AesGcmOperations aesGcm256;
 
     private byte[] smallData;
-    private byte[] mediumData;
-    private byte[] largeData;
+    private byte[] streamData;
 
     private byte[] hmacSha256Signature;
     private byte[] hmacSha512Signature;
@@ -45,30 +61,19 @@ public class CryptoBenchmark {
     private byte[] ecdsaP256Signature;
     private byte[] ecdsaP384Signature;
     private byte[] ecdsaP521Signature;
+    private byte[] rsaStreamSignature2048;
 
     private byte[] encryptedDataRsa2048;
     private byte[] encryptedDataRsa4096;
 
-    // New AES encrypted data
-    private byte[] encryptedAes128Small;
-    private byte[] encryptedAes256Small;
-    private byte[] encryptedAes128Medium;
-    private byte[] encryptedAes256Medium;
-    private byte[] encryptedAes128Large;
-    private byte[] encryptedAes256Large;
-    private byte[] encryptedAesGcm128Small;
-    private byte[] encryptedAesGcm256Small;
-    private byte[] encryptedAesGcm128Medium;
-    private byte[] encryptedAesGcm256Medium;
-    private byte[] encryptedAesGcm128Large;
-    private byte[] encryptedAesGcm256Large;
-
     @Setup(Level.Trial)
     public void setup() throws Exception {
         // Initialize HMAC operations
         byte[] hmacKey256 = CryptoUtils.generateHmacKey(32); // 256 bits
         byte[] hmacKey512 = CryptoUtils.generateHmacKey(64); // 512 bits
         hmacSha256 = new CryptoUtils.HmacOperations("HmacSHA256", hmacKey256);
+        sharedHmacSha256 = Mac.getInstance("HmacSHA256");
+        sharedHmacSha256.init(new SecretKeySpec(hmacKey256, "HmacSHA256"));
         hmacSha512 = new CryptoUtils.HmacOperations("HmacSHA512", hmacKey512);
 
         // Initialize RSA operations
@@ -86,10 +91,9 @@ public class CryptoBenchmark {
         aesGcm128 = new CryptoUtils.AesOperations.AesGcmOperations(128);
         aesGcm256 = new CryptoUtils.AesOperations.AesGcmOperations(256);
 
-        // Generate test data of different sizes
+        // Generate test data; payloads whose size matters come from Payload
         smallData = CryptoUtils.generateRandomData(64);     // 64 bytes
-        mediumData = CryptoUtils.generateRandomData(1024);  // 1KB
-        largeData = CryptoUtils.generateRandomData(10240);  // 10KB
+        streamData = CryptoUtils.generateRandomData(1 << 20); // 1MB
 
         // Pre-generate signatures for verification benchmarks
         hmacSha256Signature = hmacSha256.sign(smallData);
@@ -99,67 +103,124 @@ public class CryptoBenchmark {
         ecdsaP256Signature = ecdsaP256.sign(smallData);
         ecdsaP384Signature = ecdsaP384.sign(smallData);
         ecdsaP521Signature = ecdsaP521.sign(smallData);
+        rsaStreamSignature2048 = rsa2048.sign(streamData);
 
         // Pre-encrypt data for decryption benchmarks
         encryptedDataRsa2048 = rsa2048.encrypt(smallData);
         encryptedDataRsa4096 = rsa4096.encrypt(smallData);
 
-        // Pre-encrypt AES data for decryption benchmarks
-        encryptedAes128Small = aes128.encrypt(smallData);
-        encryptedAes256Small = aes256.encrypt(smallData);
-        encryptedAes128Medium = aes128.encrypt(mediumData);
-        encryptedAes256Medium = aes256.encrypt(mediumData);
-        encryptedAes128Large = aes128.encrypt(largeData);
-        encryptedAes256Large = aes256.encrypt(largeData);
+    }
+
+    // Payload sizes for the benchmarks whose cost grows with the input
+    @State(Scope.Benchmark)
+    public static class Payload {
+        @Param({"64", "1024", "10240"})
+        public int payloadSize;
+
+        private byte[] data;
+        private byte[] encryptedAes128;
+        private byte[] encryptedAes256;
+        private byte[] encryptedAesGcm128;
+        private byte[] encryptedAesGcm256;
 
-        encryptedAesGcm128Small = aesGcm128.encrypt(smallData);
-        encryptedAesGcm256Small = aesGcm256.encrypt(smallData);
-        encryptedAesGcm128Medium = aesGcm128.encrypt(mediumData);
-        encryptedAesGcm256Medium = aesGcm256.encrypt(mediumData);
-        encryptedAesGcm128Large = aesGcm128.encrypt(largeData);
-        encryptedAesGcm256Large = aesGcm256.encrypt(largeData);
+        @Setup(Level.Trial)
+        public void setup(CryptoBenchmark benchmark) throws Exception {
+            data = CryptoUtils.generateRandomData(payloadSize);
+            encryptedAes128 = benchmark.aes128.encrypt(data);
+            encryptedAes256 = benchmark.aes256.encrypt(data);
+            encryptedAesGcm128 = benchmark.aesGcm128.encrypt(data);
+            encryptedAesGcm256 = benchmark.aesGcm256.encrypt(data);
+        }
     }
 
     // HMAC Signing Benchmarks
     @Benchmark
-    public byte[] hmacSha256SignSmall() {
-        return hmacSha256.sign(smallData);
+    public byte[] hmacSha256Sign(Payload payload) {
+        return hmacSha256.sign(payload.data);
     }
 
     @Benchmark
-    public byte[] hmacSha256SignMedium() {
-        return hmacSha256.sign(mediumData);
+    public byte[] hmacSha512Sign(Payload payload) {
+        return hmacSha512.sign(payload.data);
     }
 
+    // HMAC Verification Benchmarks
     @Benchmark
-    public byte[] hmacSha256SignLarge() {
-        return hmacSha256.sign(largeData);
+    public boolean hmacSha256Verify() {
+        return hmacSha256.verify(smallData, hmacSha256Signature);
+    }
+
+    @Benchmark
+    public boolean hmacSha512Verify() {
+        return hmacSha512.verify(smallData, hmacSha512Signature);
     }
 
+    // Per-thread buffers for the allocation-free HMAC variants
+    @State(Scope.Thread)
+    public static class HmacBuffers {
+        private final byte[] mac = new byte[32];
+        private ByteBuffer data;
+
+        @Setup(Level.Trial)
+        public void setup(CryptoBenchmark benchmark) {
+            data = ByteBuffer.allocateDirect(64);
+            data.put(CryptoUtils.generateRandomData(64)).flip();
+            // The MAC of data, so the verify benchmark takes the accepting path
+            benchmark.hmacSha256.sign(data, mac, 0);
+            data.rewind();
+        }
+    }
+
+    // Concurrent HMAC Signing Benchmarks (throughput should grow with threads up to the core count)
     @Benchmark
-    public byte[] hmacSha512SignSmall() {
-        return hmacSha512.sign(smallData);
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(1)
+    public byte[] hmacSha256SignSmallThreads1() {
+        return hmacSha256.sign(smallData);
     }
 
     @Benchmark
-    public byte[] hmacSha512SignMedium() {
-        return hmacSha512.sign(mediumData);
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public byte[] hmacSha256SignSmallThreads4() {
+        return hmacSha256.sign(smallData);
     }
 
     @Benchmark
-    public byte[] hmacSha512SignLarge() {
-        return hmacSha512.sign(largeData);
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(8)
+    public byte[] hmacSha256SignSmallThreads8() {
+        return hmacSha256.sign(smallData);
     }
 
-    // HMAC Verification Benchmarks
+    // One Mac behind a lock, the alternative to per-thread instances
     @Benchmark
-    public boolean hmacSha256Verify() {
-        return hmacSha256.verify(smallData, hmacSha256Signature);
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public byte[] hmacSha256SignSmallSynchronizedThreads4() {
+        synchronized (sharedHmacSha256) {
+            return sharedHmacSha256.doFinal(smallData);
+        }
     }
 
     @Benchmark
-    public boolean hmacSha512Verify() {
-        return hmacSha512.verify(smallData, hmacSha512Signature);
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public int hmacSha256SignBufferThreads4(HmacBuffers buffers) {
+        return hmacSha256.sign(buffers.data.rewind(), buffers.mac, 0);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public boolean hmacSha256VerifyBufferThreads4(HmacBuffers buffers) {
+        return hmacSha256.verify(buffers.data.rewind(), buffers.mac, 0);
     }
 
     // RSA Signing Benchmarks
@@ -238,134 +299,243 @@ public class CryptoBenchmark {
         return ecdsaP521.verify(smallData, ecdsaP521Signature);
     }
 
-    // AES-CBC Encryption Benchmarks
+    // Signature construction on every call, the behaviour before per-thread caching
     @Benchmark
-    public byte[] aes128EncryptSmall() throws Exception {
-        return aes128.encrypt(smallData);
+    public byte[] rsaSign2048PerCall() throws Exception {
+        return signPerCall("SHA256withRSA", rsa2048.getPrivateKey(), smallData);
     }
 
     @Benchmark
-    public byte[] aes128EncryptMedium() throws Exception {
-        return aes128.encrypt(mediumData);
+    public boolean rsaVerify2048PerCall() throws Exception {
+        return verifyPerCall("SHA256withRSA", rsa2048.getPublicKey(), smallData, rsaSignature2048);
     }
 
     @Benchmark
-    public byte[] aes128EncryptLarge() throws Exception {
-        return aes128.encrypt(largeData);
+    public byte[] ecdsaP256SignPerCall() throws Exception {
+        return signPerCall("SHA256withECDSA", ecdsaP256.getPrivateKey(), smallData);
     }
 
     @Benchmark
-    public byte[] aes256EncryptSmall() throws Exception {
-        return aes256.encrypt(smallData);
+    public boolean ecdsaP256VerifyPerCall() throws Exception {
+        return verifyPerCall("SHA256withECDSA", ecdsaP256.getPublicKey(), smallData, ecdsaP256Signature);
     }
 
+    // Streaming Signature Benchmarks (1MB)
     @Benchmark
-    public byte[] aes256EncryptMedium() throws Exception {
-        return aes256.encrypt(mediumData);
+    public byte[] rsaSign2048Array1MB() throws Exception {
+        return rsa2048.sign(streamData);
     }
 
     @Benchmark
-    public byte[] aes256EncryptLarge() throws Exception {
-        return aes256.encrypt(largeData);
+    public byte[] rsaSign2048Stream1MB() throws Exception {
+        return rsa2048.sign(new ByteArrayInputStream(streamData));
     }
 
-    // AES-CBC Decryption Benchmarks
     @Benchmark
-    public byte[] aes128DecryptSmall() throws Exception {
-        return aes128.decrypt(encryptedAes128Small);
+    public boolean rsaVerify2048Stream1MB() throws Exception {
+        return rsa2048.verify(new ByteArrayInputStream(streamData), rsaStreamSignature2048);
     }
 
-    @Benchmark
-    public byte[] aes128DecryptMedium() throws Exception {
-        return aes128.decrypt(encryptedAes128Medium);
+    private static byte[] signPerCall(String algorithm, PrivateKey key, byte[] data) throws Exception {
+        Signature signature = Signature.getInstance(algorithm);
+        signature.initSign(key);
+        signature.update(data);
+        return signature.sign();
+    }
+
+    private static boolean verifyPerCall(String algorithm, PublicKey key, byte[] data, byte[] signatureBytes) throws Exception {
+        Signature signature = Signature.getInstance(algorithm);
+        signature.initVerify(key);
+        signature.update(data);
+        return signature.verify(signatureBytes);
+    }
+
+    @State(Scope.Benchmark)
+    public static class VerificationBatch {
+        @Param({"1", "16", "256", "1024"})
+        public int batchSize;
+
+        @Param({"RSA_2048", "ECDSA_P256"})
+        public String keyType;
+
+        private final List<CryptoUtils.BatchVerifier.SignedMessage> messages = new ArrayList<>();
+        private CryptoUtils.RsaOperations rsa;
+        private CryptoUtils.EcdsaOperations ecdsa;
+        private CryptoUtils.BatchVerifier verifier;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            boolean useRsa = keyType.equals("RSA_2048");
+            rsa = useRsa ? new CryptoUtils.RsaOperations(2048) : null;
+            ecdsa = useRsa ? null : new CryptoUtils.EcdsaOperations("secp256r1");
+            for (int i = 0; i < batchSize; i++) {
+                byte[] data = CryptoUtils.generateRandomData(256);
+                messages.add(useRsa
+                        ? new CryptoUtils.BatchVerifier.SignedMessage(data, rsa.sign(data), rsa.getPublicKey())
+                        : new CryptoUtils.BatchVerifier.SignedMessage(data, ecdsa.sign(data), ecdsa.getPublicKey()));
+            }
+            verifier = new CryptoUtils.BatchVerifier();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            verifier.close();
+        }
+    }
+
+    // Reported as verifications/sec next to the batches/sec score
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Verifications {
+        public long verifications;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            verifications = 0;
+        }
     }
 
+    // Batch Verification Benchmarks
     @Benchmark
-    public byte[] aes128DecryptLarge() throws Exception {
-        return aes128.decrypt(encryptedAes128Large);
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public BitSet batchVerify(VerificationBatch batch, Verifications counter) throws Exception {
+        BitSet valid = batch.verifier.verify(batch.messages);
+        counter.verifications += batch.batchSize;
+        return valid;
     }
 
+    // One verify call after another, the way callers had to do it before BatchVerifier
     @Benchmark
-    public byte[] aes256DecryptSmall() throws Exception {
-        return aes256.decrypt(encryptedAes256Small);
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int batchVerifySequential(VerificationBatch batch, Verifications counter) throws Exception {
+        int valid = 0;
+        for (CryptoUtils.BatchVerifier.SignedMessage message : batch.messages) {
+            boolean ok = batch.rsa != null
+                    ? batch.rsa.verify(message.data(), message.signature())
+                    : batch.ecdsa.verify(message.data(), message.signature());
+            if (ok) {
+                valid++;
+            }
+        }
+        counter.verifications += batch.batchSize;
+        return valid;
     }
 
+    // AES-CBC Encryption Benchmarks
     @Benchmark
-    public byte[] aes256DecryptMedium() throws Exception {
-        return aes256.decrypt(encryptedAes256Medium);
+    public byte[] aes128Encrypt(Payload payload) throws Exception {
+        return aes128.encrypt(payload.data);
     }
 
     @Benchmark
-    public byte[] aes256DecryptLarge() throws Exception {
-        return aes256.decrypt(encryptedAes256Large);
+    public byte[] aes256Encrypt(Payload payload) throws Exception {
+        return aes256.encrypt(payload.data);
     }
 
-    // AES-GCM Encryption Benchmarks
+    // AES-CBC Decryption Benchmarks
     @Benchmark
-    public byte[] aesGcm128EncryptSmall() throws Exception {
-        return aesGcm128.encrypt(smallData);
+    public byte[] aes128Decrypt(Payload payload) throws Exception {
+        return aes128.decrypt(payload.encryptedAes128);
     }
 
     @Benchmark
-    public byte[] aesGcm128EncryptMedium() throws Exception {
-        return aesGcm128.encrypt(mediumData);
+    public byte[] aes256Decrypt(Payload payload) throws Exception {
+        return aes256.decrypt(payload.encryptedAes256);
     }
 
+    @State(Scope.Thread)
+    public static class GcmBuffers {
+        private ByteBuffer plaintext;
+        private ByteBuffer encrypted;
+        private ByteBuffer out;
+
+        @Setup(Level.Trial)
+        public void setup(CryptoBenchmark benchmark, Payload payload) throws Exception {
+            int encryptedLength = CryptoUtils.AesOperations.AesGcmOperations.encryptedLength(payload.payloadSize);
+            plaintext = ByteBuffer.allocateDirect(payload.payloadSize).put(payload.data).flip();
+            encrypted = ByteBuffer.allocateDirect(encryptedLength);
+            benchmark.aesGcm128.encrypt(plaintext.duplicate(), encrypted);
+            encrypted.flip();
+            out = ByteBuffer.allocateDirect(encryptedLength);
+        }
+    }
+
+    // AES-GCM ByteBuffer Benchmarks (direct buffers, counter IVs)
     @Benchmark
-    public byte[] aesGcm128EncryptLarge() throws Exception {
-        return aesGcm128.encrypt(largeData);
+    public int aesGcm128EncryptBuffer(GcmBuffers buffers) throws Exception {
+        return aesGcm128.encrypt(buffers.plaintext.rewind(), buffers.out.clear());
     }
 
     @Benchmark
-    public byte[] aesGcm256EncryptSmall() throws Exception {
-        return aesGcm256.encrypt(smallData);
+    public int aesGcm128DecryptBuffer(GcmBuffers buffers) throws Exception {
+        return aesGcm128.decrypt(buffers.encrypted.rewind(), buffers.out.clear());
     }
 
+    // AES-GCM Encryption Benchmarks
     @Benchmark
-    public byte[] aesGcm256EncryptMedium() throws Exception {
-        return aesGcm256.encrypt(mediumData);
+    public byte[] aesGcm128Encrypt(Payload payload) throws Exception {
+        return aesGcm128.encrypt(payload.data);
     }
 
     @Benchmark
-    public byte[] aesGcm256EncryptLarge() throws Exception {
-        return aesGcm256.encrypt(largeData);
+    public byte[] aesGcm256Encrypt(Payload payload) throws Exception {
+        return aesGcm256.encrypt(payload.data);
     }
 
     // AES-GCM Decryption Benchmarks
     @Benchmark
-    public byte[] aesGcm128DecryptSmall() throws Exception {
-        return aesGcm128.decrypt(encryptedAesGcm128Small);
+    public byte[] aesGcm128Decrypt(Payload payload) throws Exception {
+        return aesGcm128.decrypt(payload.encryptedAesGcm128);
     }
 
     @Benchmark
-    public byte[] aesGcm128DecryptMedium() throws Exception {
-        return aesGcm128.decrypt(encryptedAesGcm128Medium);
+    public byte[] aesGcm256Decrypt(Payload payload) throws Exception {
+        return aesGcm256.decrypt(payload.encryptedAesGcm256);
     }
 
+    // Multi-threaded groups: signers and verifiers share one key at the same time, as on a busy signing path
     @Benchmark
-    public byte[] aesGcm128DecryptLarge() throws Exception {
-        return aesGcm128.decrypt(encryptedAesGcm128Large);
+    @Group("hmacSha256SignAndVerify")
+    @GroupThreads(2)
+    public byte[] hmacSha256GroupSign() {
+        return hmacSha256.sign(smallData);
     }
 
     @Benchmark
-    public byte[] aesGcm256DecryptSmall() throws Exception {
-        return aesGcm256.decrypt(encryptedAesGcm256Small);
+    @Group("hmacSha256SignAndVerify")
+    @GroupThreads(2)
+    public boolean hmacSha256GroupVerify() {
+        return hmacSha256.verify(smallData, hmacSha256Signature);
     }
 
     @Benchmark
-    public byte[] aesGcm256DecryptMedium() throws Exception {
-        return aesGcm256.decrypt(encryptedAesGcm256Medium);
+    @Group("ecdsaP256SignAndVerify")
+    @GroupThreads(1)
+    public byte[] ecdsaP256GroupSign() throws Exception {
+        return ecdsaP256.sign(smallData);
     }
 
     @Benchmark
-    public byte[] aesGcm256DecryptLarge() throws Exception {
-        return aesGcm256.decrypt(encryptedAesGcm256Large);
+    @Group("ecdsaP256SignAndVerify")
+    @GroupThreads(3)
+    public boolean ecdsaP256GroupVerify() throws Exception {
+        return ecdsaP256.verify(smallData, ecdsaP256Signature);
     }
 
-    public static void main(String[] args) throws RunnerException {
+    /**
+     * Runs every benchmark and writes JSON results to {@code args[0]}, or to {@code build/results/jmh/results.json}
+     * like {@code ./gradlew jmh}. JMH does not create missing directories, so the parent is created first.
+     */
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path results = Path.of(args.length > 0 ? args[0] : "build/results/jmh/results.json").toAbsolutePath();
+        Files.createDirectories(results.getParent());
         Options opt = new OptionsBuilder()
                 .include(CryptoBenchmark.class.getSimpleName())
-                .forks(1)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(results.toString())
                 .build();
 
         new Runner(opt).run();
@@ -0,0 +1,117 @@
+package org.example.hmacvsrsa;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Each operation encrypts or decrypts a 1GB file. The 64MB heap shows that memory does not grow with the input.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 1, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx64m")
+public class StreamingAesBenchmark {
+
+    private static final long FILE_SIZE = 1L << 30;
+
+    @Param({"65536", "1048576"})
+    public int segmentSize;
+
+    private CryptoUtils.AesOperations.AesGcmOperations aesGcm256;
+    private Path directory;
+    private Path plaintext;
+    private Path encrypted;
+    private Path decrypted;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        aesGcm256 = new CryptoUtils.AesOperations.AesGcmOperations(256);
+        directory = Files.createTempDirectory("streaming-aes");
+        plaintext = directory.resolve("plaintext.bin");
+        encrypted = directory.resolve("encrypted.bin");
+        decrypted = directory.resolve("decrypted.bin");
+
+        byte[] block = new byte[1 << 20];
+        new Random(42).nextBytes(block);
+        try (OutputStream out = Files.newOutputStream(plaintext)) {
+            for (long written = 0; written < FILE_SIZE; written += block.length) {
+                out.write(block);
+            }
+        }
+        aesGcm256.encrypt(plaintext, encrypted, segmentSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeakHeap() {
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    // Includes garbage not yet collected, so it is an upper bound on what the streaming code keeps live
+    @TearDown(Level.Iteration)
+    public void printPeakHeap() {
+        long peak = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        System.out.printf("peak heap: %.1f MB%n", peak / 1e6);
+    }
+
+    // Reported as MB/s next to the files/s score
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Throughput {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    @Benchmark
+    public long encrypt1GB(Throughput throughput) throws Exception {
+        long bytes = aesGcm256.encrypt(plaintext, encrypted, segmentSize);
+        throughput.megabytes += bytes / 1e6;
+        return bytes;
+    }
+
+    @Benchmark
+    public long decrypt1GB(Throughput throughput) throws Exception {
+        long bytes = aesGcm256.decrypt(encrypted, decrypted);
+        throughput.megabytes += bytes / 1e6;
+        return bytes;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(StreamingAesBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
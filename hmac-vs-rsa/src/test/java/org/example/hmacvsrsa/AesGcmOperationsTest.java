@@ -0,0 +1,145 @@
+package org.example.hmacvsrsa;
+
+import org.example.hmacvsrsa.CryptoUtils.AesOperations.AesGcmOperations;
+import org.example.hmacvsrsa.CryptoUtils.GcmIvGenerator;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AesGcmOperationsTest {
+
+    @Test
+    void bufferCiphertextDecryptsThroughTheArrayApi() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(256);
+        byte[] data = CryptoUtils.generateRandomData(1000);
+        ByteBuffer out = ByteBuffer.allocateDirect(AesGcmOperations.encryptedLength(data.length));
+
+        gcm.encrypt(ByteBuffer.allocateDirect(data.length).put(data).flip(), out);
+        byte[] encrypted = new byte[out.flip().remaining()];
+        out.get(encrypted);
+
+        assertThat(gcm.decrypt(encrypted)).isEqualTo(data);
+    }
+
+    @Test
+    void arrayCiphertextDecryptsThroughTheBufferApi() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(128);
+        byte[] data = CryptoUtils.generateRandomData(1000);
+        byte[] encrypted = gcm.encrypt(data);
+        ByteBuffer out = ByteBuffer.allocate(data.length);
+
+        assertThat(gcm.decrypt(ByteBuffer.wrap(encrypted), out)).isEqualTo(data.length);
+
+        assertThat(out.array()).isEqualTo(data);
+    }
+
+    @Test
+    void buffersAdvanceByWhatWasReadAndWritten() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(256);
+        byte[] data = CryptoUtils.generateRandomData(100);
+        ByteBuffer plaintext = ByteBuffer.wrap(data, 10, 50);
+        ByteBuffer encrypted = ByteBuffer.allocate(200).position(7);
+
+        int written = gcm.encrypt(plaintext, encrypted);
+
+        assertThat(written).isEqualTo(AesGcmOperations.encryptedLength(50));
+        assertThat(plaintext.position()).isEqualTo(60);
+        assertThat(plaintext.limit()).isEqualTo(60);
+        assertThat(encrypted.position()).isEqualTo(7 + written);
+        assertThat(encrypted.limit()).isEqualTo(200);
+
+        encrypted.flip().position(7);
+        ByteBuffer decrypted = ByteBuffer.allocate(80).position(3);
+        assertThat(gcm.decrypt(encrypted, decrypted)).isEqualTo(50);
+        assertThat(encrypted.hasRemaining()).isFalse();
+        assertThat(decrypted.position()).isEqualTo(53);
+        assertThat(decrypted.limit()).isEqualTo(80);
+        assertThat(Arrays.copyOfRange(decrypted.array(), 3, 53)).isEqualTo(Arrays.copyOfRange(data, 10, 60));
+    }
+
+    @Test
+    void emptyPlaintextRoundTrips() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(128);
+        ByteBuffer encrypted = ByteBuffer.allocate(AesGcmOperations.encryptedLength(0));
+
+        assertThat(gcm.encrypt(ByteBuffer.allocate(0), encrypted)).isEqualTo(28);
+        assertThat(gcm.decrypt(encrypted.flip(), ByteBuffer.allocate(0))).isZero();
+    }
+
+    @Test
+    void tamperedCiphertextWritesNothing() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(256);
+        byte[] encrypted = gcm.encrypt(CryptoUtils.generateRandomData(64));
+        encrypted[AesGcmOperations.IV_LENGTH + 5] ^= 1;
+        ByteBuffer out = ByteBuffer.allocate(64);
+
+        assertThatThrownBy(() -> gcm.decrypt(ByteBuffer.wrap(encrypted), out)).isInstanceOf(AEADBadTagException.class);
+        assertThat(out.position()).isZero();
+        assertThat(out.array()).containsOnly(0);
+        assertThatThrownBy(() -> gcm.decrypt(ByteBuffer.allocate(27), out)).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void shortOutputBufferIsRejectedBeforeUsingAnIv() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(128);
+        ByteBuffer plaintext = ByteBuffer.allocate(10);
+        ByteBuffer out = ByteBuffer.allocate(AesGcmOperations.encryptedLength(10) - 1);
+
+        assertThatThrownBy(() -> gcm.encrypt(plaintext, out)).isInstanceOf(ShortBufferException.class);
+        assertThat(plaintext.position()).isZero();
+        assertThat(out.position()).isZero();
+    }
+
+    @Test
+    void encryptionsNeverShareAnIv() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(128);
+        Set<ByteBuffer> ivs = ConcurrentHashMap.newKeySet();
+        int perThread = 5_000;
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                ByteBuffer plaintext = ByteBuffer.allocate(16);
+                ByteBuffer out = ByteBuffer.allocate(AesGcmOperations.encryptedLength(16));
+                for (int i = 0; i < perThread; i++) {
+                    try {
+                        gcm.encrypt(plaintext.clear(), out.clear());
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    ivs.add(ByteBuffer.wrap(Arrays.copyOf(out.array(), AesGcmOperations.IV_LENGTH)));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(ivs).hasSize(threads.length * perThread);
+    }
+
+    @Test
+    void ivIsThePrefixFollowedByTheCounter() {
+        GcmIvGenerator generator = new GcmIvGenerator(0x01020304);
+        byte[] iv = new byte[AesGcmOperations.IV_LENGTH];
+        Set<ByteBuffer> seen = new HashSet<>();
+
+        for (long i = 0; i < 1000; i++) {
+            generator.next(iv);
+            ByteBuffer value = ByteBuffer.wrap(iv.clone());
+            assertThat(value.getInt(0)).isEqualTo(0x01020304);
+            assertThat(value.getLong(4)).isEqualTo(i);
+            assertThat(seen.add(value)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.hmacvsrsa;
+
+import org.example.hmacvsrsa.CryptoUtils.AesOperations.AesGcmOperations;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.crypto.AEADBadTagException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AesGcmStreamTest {
+
+    private static final int SEGMENT = 1024;
+    private static final int HEADER = AesGcmOperations.STREAM_HEADER_LENGTH;
+    private static final int SEALED = SEGMENT + AesGcmOperations.TAG_LENGTH;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, SEGMENT - 1, SEGMENT, SEGMENT + 1, 3 * SEGMENT, 3 * SEGMENT + 17})
+    void roundTrips(int size) throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(256);
+        byte[] data = CryptoUtils.generateRandomData(size);
+        Path plain = Files.write(directory.resolve("plain"), data);
+        Path sealed = directory.resolve("sealed");
+        Path opened = directory.resolve("opened");
+
+        assertThat(gcm.encrypt(plain, sealed, SEGMENT)).isEqualTo(size);
+        int segments = Math.max(1, (size + SEGMENT - 1) / SEGMENT);
+        assertThat(Files.size(sealed)).isEqualTo(HEADER + size + (long) segments * AesGcmOperations.TAG_LENGTH);
+
+        assertThat(gcm.decrypt(sealed, opened)).isEqualTo(size);
+        assertThat(Files.readAllBytes(opened)).isEqualTo(data);
+    }
+
+    @Test
+    void defaultSegmentSizeRoundTrips() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(128);
+        byte[] data = CryptoUtils.generateRandomData(AesGcmOperations.DEFAULT_SEGMENT_SIZE + 5);
+        Path sealed = directory.resolve("sealed");
+
+        gcm.encrypt(Files.write(directory.resolve("plain"), data), sealed);
+        gcm.decrypt(sealed, directory.resolve("opened"));
+
+        assertThat(Files.readAllBytes(directory.resolve("opened"))).isEqualTo(data);
+    }
+
+    @Test
+    void eachEncryptionOfAFileGetsItsOwnKey() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(256);
+        byte[] data = CryptoUtils.generateRandomData(SEGMENT);
+        Path plain = Files.write(directory.resolve("plain"), data);
+        gcm.encrypt(plain, directory.resolve("first"), SEGMENT);
+        gcm.encrypt(plain, directory.resolve("second"), SEGMENT);
+        byte[] first = Files.readAllBytes(directory.resolve("first"));
+        byte[] second = Files.readAllBytes(directory.resolve("second"));
+
+        int salt = 4;
+        int prefix = salt + AesGcmOperations.STREAM_SALT_LENGTH;
+        assertThat(Arrays.copyOfRange(first, salt, prefix)).isNotEqualTo(Arrays.copyOfRange(second, salt, prefix));
+        assertThat(Arrays.copyOfRange(first, prefix, HEADER)).isNotEqualTo(Arrays.copyOfRange(second, prefix, HEADER));
+        assertThat(Arrays.copyOfRange(first, HEADER, first.length)).isNotEqualTo(Arrays.copyOfRange(second, HEADER, second.length));
+
+        byte[] firstKey = gcm.streamKey(Arrays.copyOf(first, HEADER)).getEncoded();
+        byte[] secondKey = gcm.streamKey(Arrays.copyOf(second, HEADER)).getEncoded();
+        assertThat(firstKey).hasSize(32).isNotEqualTo(secondKey);
+        assertThat(gcm.streamKey(Arrays.copyOf(first, HEADER)).getEncoded()).isEqualTo(firstKey);
+        assertThat(new AesGcmOperations(256).streamKey(Arrays.copyOf(first, HEADER)).getEncoded()).isNotEqualTo(firstKey);
+    }
+
+    @Test
+    void droppedLastSegmentIsRejected() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(256);
+        byte[] sealed = seal(gcm, 2 * SEGMENT + 1);
+
+        // Cut at a segment boundary, so what remains is a well-formed run of full segments
+        assertRejected(gcm, Arrays.copyOf(sealed, HEADER + 2 * SEALED));
+        assertRejected(gcm, Arrays.copyOf(sealed, HEADER + SEALED));
+        assertRejected(gcm, Arrays.copyOf(sealed, sealed.length - 1));
+    }
+
+    @Test
+    void reorderedSegmentsAreRejected() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(256);
+        byte[] sealed = seal(gcm, 3 * SEGMENT);
+
+        byte[] swapped = sealed.clone();
+        System.arraycopy(sealed, HEADER + SEALED, swapped, HEADER, SEALED);
+        System.arraycopy(sealed, HEADER, swapped, HEADER + SEALED, SEALED);
+        assertRejected(gcm, swapped);
+
+        // The last segment moved forward still carries the last flag
+        byte[] lastFirst = sealed.clone();
+        System.arraycopy(sealed, HEADER + 2 * SEALED, lastFirst, HEADER + SEALED, SEALED);
+        System.arraycopy(sealed, HEADER + SEALED, lastFirst, HEADER + 2 * SEALED, SEALED);
+        assertRejected(gcm, lastFirst);
+    }
+
+    @Test
+    void segmentsFromAnotherFileAreRejected() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(256);
+        byte[] first = seal(gcm, 2 * SEGMENT);
+        byte[] second = seal(gcm, 2 * SEGMENT);
+
+        byte[] spliced = first.clone();
+        System.arraycopy(second, HEADER + SEALED, spliced, HEADER + SEALED, SEALED);
+
+        assertRejected(gcm, spliced);
+    }
+
+    @Test
+    void flippedHeaderByteIsRejected() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(256);
+        byte[] sealed = seal(gcm, SEGMENT + 1);
+
+        for (int i = 0; i < HEADER; i++) {
+            byte[] tampered = sealed.clone();
+            tampered[i] ^= 1;
+            assertRejected(gcm, tampered);
+        }
+    }
+
+    @Test
+    void flippedCiphertextByteIsRejected() throws Exception {
+        AesGcmOperations gcm = new AesGcmOperations(256);
+        byte[] sealed = seal(gcm, 2 * SEGMENT);
+        sealed[HEADER + SEALED + 100] ^= 1;
+
+        assertRejected(gcm, sealed);
+    }
+
+    @Test
+    void otherKeyIsRejected() throws Exception {
+        byte[] sealed = seal(new AesGcmOperations(256), 10);
+
+        assertRejected(new AesGcmOperations(256), sealed);
+    }
+
+    private byte[] seal(AesGcmOperations gcm, int size) throws Exception {
+        Path plain = Files.write(directory.resolve("plain"), CryptoUtils.generateRandomData(size));
+        Path sealed = directory.resolve("sealed");
+        gcm.encrypt(plain, sealed, SEGMENT);
+        return Files.readAllBytes(sealed);
+    }
+
+    // Decryption fails with a tag error and leaves no partial plaintext behind
+    private void assertRejected(AesGcmOperations gcm, byte[] sealed) throws Exception {
+        Path source = Files.write(directory.resolve("tampered"), sealed);
+        Path target = directory.resolve("opened");
+
+        assertThatThrownBy(() -> gcm.decrypt(source, target)).isInstanceOf(AEADBadTagException.class);
+        assertThat(target).doesNotExist();
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.hmacvsrsa;
+
+import org.example.hmacvsrsa.CryptoUtils.BatchVerifier;
+import org.example.hmacvsrsa.CryptoUtils.BatchVerifier.SignedMessage;
+import org.example.hmacvsrsa.CryptoUtils.EcdsaOperations;
+import org.example.hmacvsrsa.CryptoUtils.RsaOperations;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchVerifierTest {
+
+    @Test
+    void setsTheBitOfEveryValidSignatureOnly() throws Exception {
+        RsaOperations rsa = new RsaOperations(2048);
+        EcdsaOperations ecdsa = new EcdsaOperations("secp256r1");
+        List<SignedMessage> messages = new ArrayList<>();
+        BitSet expected = new BitSet();
+        // 100 messages over 2 workers: slices of 50, each mixing both algorithms and all three outcomes
+        for (int i = 0; i < 100; i++) {
+            byte[] data = CryptoUtils.generateRandomData(32 + i);
+            boolean useRsa = i % 2 == 0;
+            byte[] signature = useRsa ? rsa.sign(data) : ecdsa.sign(data);
+            switch (i % 5) {
+                case 1 -> signature[signature.length / 2] ^= 1;
+                case 3 -> signature = Arrays.copyOf(signature, signature.length - 3);
+                default -> expected.set(i);
+            }
+            messages.add(new SignedMessage(data, signature, useRsa ? rsa.getPublicKey() : ecdsa.getPublicKey()));
+        }
+
+        try (BatchVerifier verifier = new BatchVerifier(2)) {
+            assertThat(verifier.verify(messages)).isEqualTo(expected);
+            // Again, on threads whose Signature objects have seen failures
+            assertThat(verifier.verify(messages)).isEqualTo(expected);
+            assertThat(verifier.verify(messages.subList(0, 5))).isEqualTo(expected.get(0, 5));
+            assertThat(verifier.verify(List.of()).isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void signatureUnderAnotherKeyIsInvalid() throws Exception {
+        EcdsaOperations signer = new EcdsaOperations("secp256r1");
+        EcdsaOperations other = new EcdsaOperations("secp256r1");
+        byte[] data = CryptoUtils.generateRandomData(64);
+
+        try (BatchVerifier verifier = new BatchVerifier(4)) {
+            BitSet valid = verifier.verify(List.of(
+                    new SignedMessage(data, signer.sign(data), other.getPublicKey()),
+                    new SignedMessage(data, signer.sign(data), signer.getPublicKey())));
+
+            assertThat(valid).isEqualTo(BitSet.valueOf(new long[]{0b10}));
+        }
+    }
+
+    @Test
+    void rejectsKeysItCannotVerify() {
+        assertThatThrownBy(() -> new SignedMessage(new byte[0], new byte[0],
+                KeyPairGenerator.getInstance("Ed25519").generateKeyPair().getPublic()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BatchVerifier(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
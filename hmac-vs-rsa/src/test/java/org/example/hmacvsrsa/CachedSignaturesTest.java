@@ -0,0 +1,143 @@
+package org.example.hmacvsrsa;
+
+import org.example.hmacvsrsa.CryptoUtils.CachedSignatures;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SignatureException;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachedSignaturesTest {
+
+    private static final String RSA = "SHA256withRSA";
+    private static final String ECDSA = "SHA256withECDSA";
+
+    @ParameterizedTest
+    @ValueSource(strings = {RSA, ECDSA})
+    void everySigningOverloadVerifiesWithEveryOther(String algorithm) throws Exception {
+        CachedSignatures signatures = signatures(algorithm);
+        // Larger than the stream buffer, so the InputStream overloads feed more than one slice
+        byte[] data = CryptoUtils.generateRandomData(20_000);
+
+        List<byte[]> signed = List.of(
+            signatures.sign(data),
+            signatures.sign(ByteBuffer.wrap(data)),
+            signatures.sign(ByteBuffer.allocateDirect(data.length).put(data).flip()),
+            signatures.sign(new ByteArrayInputStream(data)));
+        for (byte[] signature : signed) {
+            assertThat(signatures.verify(data, signature)).isTrue();
+            assertThat(signatures.verify(ByteBuffer.wrap(data), signature)).isTrue();
+            assertThat(signatures.verify(ByteBuffer.allocateDirect(data.length).put(data).flip(), signature)).isTrue();
+            assertThat(signatures.verify(new ByteArrayInputStream(data), signature)).isTrue();
+        }
+
+        byte[] other = data.clone();
+        other[other.length - 1] ^= 1;
+        for (byte[] signature : signed) {
+            assertThat(signatures.verify(other, signature)).isFalse();
+            assertThat(signatures.verify(ByteBuffer.wrap(other), signature)).isFalse();
+            assertThat(signatures.verify(new ByteArrayInputStream(other), signature)).isFalse();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {RSA, ECDSA})
+    void signaturesFromAnotherKeyPairAreRejected(String algorithm) throws Exception {
+        byte[] data = CryptoUtils.generateRandomData(64);
+        byte[] signature = signatures(algorithm).sign(data);
+
+        assertThat(signatures(algorithm).verify(data, signature)).isFalse();
+    }
+
+    @Test
+    void malformedEcdsaSignatureDoesNotPoisonTheNextVerify() throws Exception {
+        CachedSignatures signatures = signatures(ECDSA);
+        byte[] data = CryptoUtils.generateRandomData(100);
+        byte[] signature = signatures.sign(data);
+        byte[] truncated = Arrays.copyOf(signature, signature.length - 3);
+        byte[] garbage = new byte[signature.length];
+
+        assertThatThrownBy(() -> signatures.verify(data, truncated)).isInstanceOf(SignatureException.class);
+        assertThat(signatures.verify(data, signature)).isTrue();
+
+        assertThatThrownBy(() -> signatures.verify(ByteBuffer.wrap(data), garbage)).isInstanceOf(SignatureException.class);
+        assertThat(signatures.verify(ByteBuffer.wrap(data), signature)).isTrue();
+
+        assertThatThrownBy(() -> signatures.verify(new ByteArrayInputStream(data), truncated))
+            .isInstanceOf(SignatureException.class);
+        assertThat(signatures.verify(new ByteArrayInputStream(data), signature)).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {RSA, ECDSA})
+    void oneInstanceServesManyThreads(String algorithm) throws Exception {
+        CachedSignatures signatures = signatures(algorithm);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                workers.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 50; i++) {
+                        byte[] data = CryptoUtils.generateRandomData(1 + random.nextInt(10_000));
+                        byte[] signature = switch (i % 3) {
+                            case 0 -> signatures.sign(data);
+                            case 1 -> signatures.sign(ByteBuffer.wrap(data));
+                            default -> signatures.sign(new ByteArrayInputStream(data));
+                        };
+                        // Failed calls in between must not leak into the ones after them
+                        if (i % 5 == 0) {
+                            byte[] truncated = Arrays.copyOf(signature, signature.length - 1);
+                            try {
+                                assertThat(signatures.verify(data, truncated)).isFalse();
+                            } catch (SignatureException expected) {
+                                // Malformed encodings throw instead of returning false
+                            }
+                        }
+                        assertThat(switch (i % 3) {
+                            case 0 -> signatures.verify(new ByteArrayInputStream(data), signature);
+                            case 1 -> signatures.verify(data, signature);
+                            default -> signatures.verify(ByteBuffer.wrap(data), signature);
+                        }).isTrue();
+                        data[0] ^= 1;
+                        assertThat(signatures.verify(data, signature)).isFalse();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static CachedSignatures signatures(String algorithm) throws Exception {
+        KeyPairGenerator generator;
+        if (algorithm.equals(RSA)) {
+            generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+        } else {
+            generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+        }
+        KeyPair keyPair = generator.generateKeyPair();
+        return new CachedSignatures(algorithm, keyPair.getPrivate(), keyPair.getPublic());
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.hmacvsrsa;
+
+import org.example.hmacvsrsa.CryptoUtils.HmacOperations;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HmacOperationsTest {
+
+    // Block sizes are 64 bytes for SHA-1 and SHA-256, 128 for SHA-512; longer keys are hashed first
+    @ParameterizedTest
+    @CsvSource({
+            "HmacSHA1, 20", "HmacSHA1, 64", "HmacSHA1, 100",
+            "HmacSHA256, 16", "HmacSHA256, 64", "HmacSHA256, 65", "HmacSHA256, 200",
+            "HmacSHA512, 64", "HmacSHA512, 128", "HmacSHA512, 129"
+    })
+    void inPlaceHmacMatchesMac(String algorithm, int keyLength) throws Exception {
+        byte[] key = CryptoUtils.generateHmacKey(keyLength);
+        HmacOperations hmac = new HmacOperations(algorithm, key);
+        Mac mac = Mac.getInstance(algorithm);
+        mac.init(new SecretKeySpec(key, algorithm));
+
+        for (int length : new int[]{0, 1, 63, 64, 65, 1000}) {
+            byte[] data = CryptoUtils.generateRandomData(length);
+            byte[] expected = mac.doFinal(data);
+
+            assertThat(hmac.sign(data)).isEqualTo(expected);
+            assertThat(signInto(hmac, ByteBuffer.wrap(data))).isEqualTo(expected);
+            assertThat(signInto(hmac, ByteBuffer.allocateDirect(length).put(data).flip())).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void signsOnlyTheRemainingBytesAtTheOffset() throws Exception {
+        byte[] key = CryptoUtils.generateHmacKey(32);
+        HmacOperations hmac = new HmacOperations("HmacSHA256", key);
+        byte[] data = CryptoUtils.generateRandomData(100);
+        ByteBuffer buffer = ByteBuffer.wrap(data, 10, 50);
+        byte[] out = new byte[40];
+
+        assertThat(hmac.sign(buffer, out, 5)).isEqualTo(32);
+
+        assertThat(buffer.hasRemaining()).isFalse();
+        assertThat(Arrays.copyOfRange(out, 5, 37)).isEqualTo(hmac.sign(Arrays.copyOfRange(data, 10, 60)));
+        assertThat(Arrays.copyOf(out, 5)).containsOnly(0);
+    }
+
+    @Test
+    void verifyAcceptsTheMacAndRejectsAnyOther() throws Exception {
+        HmacOperations hmac = new HmacOperations("HmacSHA256", CryptoUtils.generateHmacKey(32));
+        byte[] data = CryptoUtils.generateRandomData(64);
+        byte[] signature = hmac.sign(data);
+        byte[] wrong = signature.clone();
+        wrong[31] ^= 1;
+        byte[] atOffset = new byte[40];
+        System.arraycopy(signature, 0, atOffset, 8, 32);
+
+        assertThat(hmac.verify(data, signature)).isTrue();
+        assertThat(hmac.verify(data, wrong)).isFalse();
+        assertThat(hmac.verify(data, Arrays.copyOf(signature, 31))).isFalse();
+        assertThat(hmac.verify(ByteBuffer.wrap(data), signature, 0)).isTrue();
+        assertThat(hmac.verify(ByteBuffer.allocateDirect(64).put(data).flip(), atOffset, 8)).isTrue();
+        assertThat(hmac.verify(ByteBuffer.wrap(data), wrong, 0)).isFalse();
+        assertThat(hmac.verify(ByteBuffer.wrap(data), signature, 1)).isFalse();
+        assertThat(hmac.verify(ByteBuffer.wrap(data), signature, -1)).isFalse();
+    }
+
+    @Test
+    void threadsGetTheSameMac() throws Exception {
+        HmacOperations hmac = new HmacOperations("HmacSHA256", CryptoUtils.generateHmacKey(32));
+        byte[] data = CryptoUtils.generateRandomData(1024);
+        byte[] expected = hmac.sign(data);
+        boolean[] matched = new boolean[4];
+
+        Thread[] threads = new Thread[matched.length];
+        for (int t = 0; t < threads.length; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> {
+                boolean all = true;
+                for (int i = 0; i < 1000; i++) {
+                    all &= Arrays.equals(expected, signInto(hmac, ByteBuffer.wrap(data))) && hmac.verify(data, expected);
+                }
+                matched[index] = all;
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(matched).containsOnly(true);
+    }
+
+    private static byte[] signInto(HmacOperations hmac, ByteBuffer data) {
+        byte[] out = new byte[hmac.getMacLength()];
+        hmac.sign(data, out, 0);
+        return out;
+    }
+}
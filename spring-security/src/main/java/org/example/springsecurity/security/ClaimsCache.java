@@ -0,0 +1,96 @@
+package org.example.springsecurity.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Claims of tokens whose signature has already been verified, so a token seen again skips parsing and HMAC work.
+ * An entry lives until the token expires or {@code ttlMillis} pass, whichever comes first. Only verified tokens are
+ * stored, so a client cannot fill the cache with garbage. When {@code maxSize} is reached, expired entries are
+ * dropped first, then arbitrary ones until a tenth of the cache is free. Eviction scans the whole map, so freeing a
+ * batch at a time keeps that scan to once per {@code maxSize / 10} new tokens rather than once per miss.
+ * <p>
+ * {@link #clear()} starts a new generation. A caller reads {@link #generation()} before verifying a token and passes
+ * it to {@link #put}, and an entry from an older generation is never returned. Claims verified with a key that a
+ * concurrent reload removed therefore cannot be served, even if they are stored after the clear.
+ */
+class ClaimsCache {
+
+    private static final int EVICTION_DIVISOR = 10;
+
+    private record Entry(Claims claims, long expiresAtMillis, long generation) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final AtomicLong generation = new AtomicLong();
+
+    ClaimsCache(int maxSize, long ttlMillis, Clock clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    Claims get(String token) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis() <= clock.millis() || entry.generation() != generation.get()) {
+            entries.remove(token, entry);
+            return null;
+        }
+        return entry.claims();
+    }
+
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * @param generation the {@link #generation()} read before {@code claims} were verified
+     */
+    void put(String token, Claims claims, long generation) {
+        if (maxSize <= 0 || ttlMillis <= 0) {
+            return;
+        }
+        long now = clock.millis();
+        long expiresAt = now + ttlMillis;
+        if (claims.getExpiration() != null) {
+            expiresAt = Math.min(expiresAt, claims.getExpiration().getTime());
+        }
+        if (expiresAt <= now || generation != this.generation.get()) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(token, new Entry(claims, expiresAt, generation));
+    }
+
+    void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        int target = maxSize - Math.max(1, maxSize / EVICTION_DIVISOR);
+        entries.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+        Iterator<String> tokens = entries.keySet().iterator();
+        while (entries.size() > target && tokens.hasNext()) {
+            tokens.next();
+            tokens.remove();
+        }
+    }
+}
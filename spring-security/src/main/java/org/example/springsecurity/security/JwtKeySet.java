@@ -0,0 +1,135 @@
+package org.example.springsecurity.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.io.Parser;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PrivateJwk;
+import io.jsonwebtoken.security.PublicJwk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Asymmetric keys (RSA, EC) from a local JWKS file, indexed by {@code kid}. Each key is parsed once per load, so
+ * verifying a token only costs a map lookup before the signature check.
+ * <p>
+ * The file is re-read when its modification time changes, checked at most once per {@code refreshIntervalMillis},
+ * so keys rotate without a restart. Private keys both sign and verify, public keys only verify. The signing key is
+ * the private key named by {@code signingKid}, or the last private key in the file when none is named. To rotate,
+ * append the new private key, then remove the old one once its tokens have expired. A set with only public keys
+ * gives a service that verifies tokens but cannot issue them. If a reload fails, the previous keys stay in use.
+ */
+class JwtKeySet {
+
+    record SigningKey(String kid, PrivateKey key) {
+    }
+
+    private record Keys(Map<String, PublicKey> verification, SigningKey signing, FileTime modified) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeySet.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Parser<Jwk<?>> PARSER = Jwks.parser().build();
+
+    private final Path file;
+    private final String signingKid;
+    private final long refreshIntervalMillis;
+    private final Clock clock;
+    private final Runnable onReload;
+    private volatile Keys keys;
+    private volatile long nextCheckMillis;
+
+    JwtKeySet(Path file, String signingKid, long refreshIntervalMillis, Clock clock, Runnable onReload) {
+        this.file = file;
+        this.signingKid = signingKid == null ? "" : signingKid;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.clock = clock;
+        this.onReload = onReload;
+        try {
+            this.keys = load();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read JWKS file " + file, e);
+        }
+        this.nextCheckMillis = clock.millis() + refreshIntervalMillis;
+    }
+
+    /**
+     * @return the key for {@code kid}, or {@code null} if the set has none
+     */
+    PublicKey verificationKey(String kid) {
+        refreshIfDue();
+        return keys.verification().get(kid);
+    }
+
+    SigningKey signingKey() {
+        refreshIfDue();
+        SigningKey signing = keys.signing();
+        if (signing == null) {
+            throw new IllegalStateException(signingKid.isEmpty()
+                    ? "JWKS file " + file + " has no private key to sign with"
+                    : "JWKS file " + file + " has no private key with kid " + signingKid);
+        }
+        return signing;
+    }
+
+    void refreshIfDue() {
+        long now = clock.millis();
+        if (now < nextCheckMillis) {
+            return;
+        }
+        synchronized (this) {
+            if (now < nextCheckMillis) {
+                return;
+            }
+            nextCheckMillis = now + refreshIntervalMillis;
+            try {
+                if (!Files.getLastModifiedTime(file).equals(keys.modified())) {
+                    keys = load();
+                    onReload.run();
+                    log.info("Reloaded {} JWT keys from {}", keys.verification().size(), file);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Keeping the current JWT keys, reloading {} failed: {}", file, e.toString());
+            }
+        }
+    }
+
+    private Keys load() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(file);
+        JsonNode list = MAPPER.readTree(file.toFile()).path("keys");
+        if (!list.isArray()) {
+            throw new IllegalArgumentException("JWKS file " + file + " has no \"keys\" array");
+        }
+        Map<String, PublicKey> verification = new HashMap<>();
+        SigningKey signing = null;
+        for (JsonNode node : list) {
+            Jwk<?> jwk = PARSER.parse(node.toString());
+            String kid = jwk.getId();
+            if (kid == null || kid.isEmpty()) {
+                throw new IllegalArgumentException("Every key in " + file + " needs a kid");
+            }
+            if (jwk instanceof PrivateJwk<?, ?, ?> privateJwk) {
+                verification.put(kid, privateJwk.toPublicJwk().toKey());
+                if (signingKid.isEmpty() || signingKid.equals(kid)) {
+                    signing = new SigningKey(kid, privateJwk.toKey());
+                }
+            } else if (jwk instanceof PublicJwk<?> publicJwk) {
+                verification.put(kid, publicJwk.toKey());
+            } else {
+                throw new IllegalArgumentException("Key " + kid + " in " + file + " is not a public or private key");
+            }
+        }
+        return new Keys(Map.copyOf(verification), signing, modified);
+    }
+}
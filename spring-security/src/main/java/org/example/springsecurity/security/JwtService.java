@@ -1,9 +1,17 @@
 package org.example.springsecurity.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.JwtParserBuilder;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,70 +19,174 @@ import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.PublicKey;
+import java.time.Clock;
 import java.time.Instant;
 import java.util.Date;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Issues and verifies JWTs. By default tokens are HS256 with the shared {@code jwt.secret}. When {@code jwt.jwks.file}
+ * is set, tokens are signed RS256 or ES256 with a private key from that JWKS file and carry its {@code kid}.
+ * Verification then picks the public key by {@code kid}, so other services only need the public keys. See
+ * {@link JwtKeySet} for rotation.
+ */
 @Service
 public class JwtService {
 
     private final SecretKey key;
+    private final JwtKeySet keySet;
     private final long expirationMillis;
+    private final Clock clock;
+    // Immutable and thread-safe, so one instance serves every request
+    private final JwtParser parser;
+    private final ClaimsCache cache;
 
+    @Autowired
     public JwtService(
-            @Value("${jwt.secret}") String secret,
-            @Value("${jwt.expiration:3600000}") long expirationMillis
+            @Value("${jwt.secret:}") String secret,
+            @Value("${jwt.expiration:3600000}") long expirationMillis,
+            @Value("${jwt.cache.max-size:10000}") int cacheMaxSize,
+            @Value("${jwt.cache.ttl:300000}") long cacheTtlMillis,
+            @Value("${jwt.jwks.file:}") String jwksFile,
+            @Value("${jwt.jwks.signing-kid:}") String signingKid,
+            @Value("${jwt.jwks.refresh-interval:5000}") long jwksRefreshMillis
     ) {
+        this(jwksFile.isBlank()
+                        ? KeySource.hmac(secret)
+                        : KeySource.jwks(Path.of(jwksFile), signingKid, jwksRefreshMillis),
+                expirationMillis, cacheMaxSize, cacheTtlMillis, Clock.systemUTC());
+    }
+
+    JwtService(String secret, long expirationMillis, int cacheMaxSize, long cacheTtlMillis, Clock clock) {
+        this(KeySource.hmac(secret), expirationMillis, cacheMaxSize, cacheTtlMillis, clock);
+    }
+
+    JwtService(KeySource keySource, long expirationMillis, int cacheMaxSize, long cacheTtlMillis, Clock clock) {
+        this.expirationMillis = expirationMillis;
+        this.clock = clock;
+        this.cache = new ClaimsCache(cacheMaxSize, cacheTtlMillis, clock);
+        JwtParserBuilder builder = Jwts.parser().clock(() -> Date.from(clock.instant()));
+        if (keySource.jwksFile() == null) {
+            this.key = hmacKey(keySource.secret());
+            this.keySet = null;
+            builder.verifyWith(key);
+        } else {
+            this.key = null;
+            // Claims verified with a key that has since been removed must not outlive it
+            this.keySet = new JwtKeySet(keySource.jwksFile(), keySource.signingKid(), keySource.refreshMillis(),
+                    clock, cache::clear);
+            builder.keyLocator(new LocatorAdapter<Key>() {
+                @Override
+                protected Key locate(JwsHeader header) {
+                    String kid = header.getKeyId();
+                    if (kid == null) {
+                        throw new UnsupportedJwtException("Token has no kid");
+                    }
+                    PublicKey publicKey = keySet.verificationKey(kid);
+                    if (publicKey == null) {
+                        throw new UnsupportedJwtException("Unknown kid " + kid);
+                    }
+                    return publicKey;
+                }
+            });
+        }
+        this.parser = builder.build();
+    }
+
+    /**
+     * Where the keys come from: an HMAC secret, or a JWKS file when {@code jwksFile} is set.
+     */
+    record KeySource(String secret, Path jwksFile, String signingKid, long refreshMillis) {
+
+        static KeySource hmac(String secret) {
+            return new KeySource(secret, null, null, 0);
+        }
+
+        static KeySource jwks(Path file, String signingKid, long refreshMillis) {
+            return new KeySource(null, file, signingKid, refreshMillis);
+        }
+    }
+
+    private static SecretKey hmacKey(String secret) {
         // Accept either base64 or raw string secrets
-        SecretKey tmp;
         try {
             byte[] decoded = Decoders.BASE64.decode(secret);
-            tmp = Keys.hmacShaKeyFor(decoded);
+            return Keys.hmacShaKeyFor(decoded);
         } catch (IllegalArgumentException ex) {
-            tmp = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+            return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         }
-        this.key = tmp;
-        this.expirationMillis = expirationMillis;
     }
 
     public String generateToken(UserDetails userDetails) {
-        Instant now = Instant.now();
+        Instant now = clock.instant();
         String roles = userDetails.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.joining(","));
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .subject(userDetails.getUsername())
                 .issuedAt(Date.from(now))
                 .expiration(Date.from(now.plusMillis(expirationMillis)))
-                .claims(Map.of("roles", roles))
-                .signWith(key)
+                .claims(Map.of("roles", roles));
+        if (keySet == null) {
+            return builder.signWith(key).compact();
+        }
+        // RS256 for an RSA key, ES256 for a P-256 key
+        JwtKeySet.SigningKey signing = keySet.signingKey();
+        return builder.header().keyId(signing.kid()).and()
+                .signWith(signing.key())
                 .compact();
     }
 
+    /**
+     * Verified claims of {@code token}. The signature is checked once; later calls with the same token are served
+     * from the cache until it expires.
+     *
+     * @throws JwtException if the token is malformed, badly signed or expired
+     */
+    public Claims parseClaims(String token) {
+        if (keySet != null) {
+            // Before the cache lookup, so a removed key also drops the tokens it signed
+            keySet.refreshIfDue();
+        }
+        Claims claims = cache.get(token);
+        if (claims == null) {
+            // Read before the key lookup: a reload in between makes this entry stale rather than trusted
+            long generation = cache.generation();
+            claims = parser.parseSignedClaims(token).getPayload();
+            cache.put(token, claims, generation);
+        }
+        return claims;
+    }
+
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.getSubject()) && !isExpired(claims);
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        return isTokenValid(parseClaims(token), userDetails);
     }
 
     public String extractUsername(String token) {
-        return extractAllClaims(token).getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public String[] extractRoles(String token) {
-        Object roles = extractAllClaims(token).get("roles");
-        if (roles == null) return new String[0];
-        return roles.toString().split(",");
+        return extractRoles(parseClaims(token));
     }
 
-    private boolean isTokenExpired(String token) {
-        Date expiration = extractAllClaims(token).getExpiration();
-        return expiration.before(new Date());
+    public String[] extractRoles(Claims claims) {
+        Object roles = claims.get("roles");
+        if (roles == null) return new String[0];
+        return roles.toString().split(",");
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    private boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(Date.from(clock.instant()));
     }
 }
-
@@ -0,0 +1,114 @@
+package org.example.springsecurity.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClaimsCacheTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+
+    @Test
+    void expiredEntriesAreEvictedBeforeLiveOnes() {
+        ClaimsCache cache = new ClaimsCache(10, 60_000, clock);
+        for (int i = 0; i < 5; i++) {
+            cache.put("short" + i, claims("short" + i, Duration.ofSeconds(1)), 0);
+            cache.put("long" + i, claims("long" + i, Duration.ofMinutes(10)), 0);
+        }
+
+        clock.advance(Duration.ofSeconds(2));
+        cache.put("new", claims("new", Duration.ofMinutes(10)), 0);
+
+        assertThat(cache.size()).isEqualTo(6);
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.get("long" + i).getSubject()).isEqualTo("long" + i);
+        }
+        assertThat(cache.get("new")).isNotNull();
+    }
+
+    @Test
+    void fullCacheFreesATenthAtOnce() {
+        ClaimsCache cache = new ClaimsCache(100, 60_000, clock);
+        for (int i = 0; i < 100; i++) {
+            cache.put("old" + i, claims("old" + i, Duration.ofMinutes(10)), 0);
+        }
+
+        cache.put("new0", claims("new0", Duration.ofMinutes(10)), 0);
+        assertThat(cache.size()).isEqualTo(91);
+
+        // The freed room takes the next nine tokens without evicting any of them
+        for (int i = 1; i < 10; i++) {
+            cache.put("new" + i, claims("new" + i, Duration.ofMinutes(10)), 0);
+        }
+        assertThat(cache.size()).isEqualTo(100);
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.get("new" + i)).isNotNull();
+        }
+
+        cache.put("new10", claims("new10", Duration.ofMinutes(10)), 0);
+        assertThat(cache.size()).isEqualTo(91);
+        assertThat(cache.get("new10")).isNotNull();
+    }
+
+    @Test
+    void smallCacheStillEvictsOneAtATime() {
+        ClaimsCache cache = new ClaimsCache(2, 60_000, clock);
+        for (String token : new String[]{"a", "b", "c", "d"}) {
+            cache.put(token, claims(token, Duration.ofMinutes(10)), 0);
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("d")).isNotNull();
+    }
+
+    @Test
+    void entryLivesUntilTheEarlierOfTtlAndExpiration() {
+        ClaimsCache cache = new ClaimsCache(10, 30_000, clock);
+        cache.put("ttl", claims("ttl", Duration.ofMinutes(10)), 0);
+        cache.put("exp", claims("exp", Duration.ofSeconds(10)), 0);
+        cache.put("expired", claims("expired", Duration.ofSeconds(-1)), 0);
+
+        assertThat(cache.get("expired")).isNull();
+        clock.advance(Duration.ofSeconds(11));
+        assertThat(cache.get("exp")).isNull();
+        assertThat(cache.get("ttl")).isNotNull();
+        clock.advance(Duration.ofSeconds(20));
+        assertThat(cache.get("ttl")).isNull();
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        ClaimsCache cache = new ClaimsCache(0, 30_000, clock);
+
+        cache.put("a", claims("a", Duration.ofMinutes(10)), 0);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get("a")).isNull();
+    }
+
+    @Test
+    void entriesFromBeforeAClearAreNeverServed() {
+        ClaimsCache cache = new ClaimsCache(10, 60_000, clock);
+        cache.put("before", claims("before", Duration.ofMinutes(10)), cache.generation());
+
+        // A request read the generation and verified its token, then a key reload cleared the cache
+        long generation = cache.generation();
+        cache.clear();
+        cache.put("verifiedWithOldKey", claims("verifiedWithOldKey", Duration.ofMinutes(10)), generation);
+
+        assertThat(cache.get("before")).isNull();
+        assertThat(cache.get("verifiedWithOldKey")).isNull();
+        cache.put("after", claims("after", Duration.ofMinutes(10)), cache.generation());
+        assertThat(cache.get("after")).isNotNull();
+    }
+
+    private Claims claims(String subject, Duration lifetime) {
+        return Jwts.claims().subject(subject).expiration(Date.from(clock.instant().plus(lifetime))).build();
+    }
+}
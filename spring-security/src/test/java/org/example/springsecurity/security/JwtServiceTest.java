@@ -0,0 +1,206 @@
+package org.example.springsecurity.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "ZmFrZV9qd3Rfc2VjcmV0X2Zvcl9wb2NfMzJieXRlc19rZXk=";
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+    private final UserDetails alice = User.withUsername("alice").password("x").roles("USER", "ADMIN").build();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parsesAndValidatesGeneratedToken() {
+        JwtService service = new JwtService(SECRET, 60_000, 100, 30_000, clock);
+        String token = service.generateToken(alice);
+
+        Claims claims = service.parseClaims(token);
+
+        assertThat(claims.getSubject()).isEqualTo("alice");
+        assertThat(service.extractRoles(claims)).containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+        assertThat(service.isTokenValid(claims, alice)).isTrue();
+        assertThat(service.isTokenValid(token, alice)).isTrue();
+        assertThat(service.isTokenValid(claims, User.withUsername("bob").password("x").build())).isFalse();
+    }
+
+    @Test
+    void repeatedTokenIsServedFromCache() {
+        JwtService service = new JwtService(SECRET, 60_000, 100, 30_000, clock);
+        String token = service.generateToken(alice);
+
+        Claims first = service.parseClaims(token);
+
+        assertThat(service.parseClaims(token)).isSameAs(first);
+        assertThat(service.extractUsername(token)).isEqualTo("alice");
+    }
+
+    @Test
+    void cacheEntryExpiresAfterTtl() {
+        JwtService service = new JwtService(SECRET, 60_000, 100, 30_000, clock);
+        String token = service.generateToken(alice);
+        Claims first = service.parseClaims(token);
+
+        clock.advance(Duration.ofSeconds(31));
+
+        assertThat(service.parseClaims(token)).isNotSameAs(first).isEqualTo(first);
+    }
+
+    @Test
+    void expiredTokenIsRejectedEvenWhenCached() {
+        JwtService service = new JwtService(SECRET, 10_000, 100, 300_000, clock);
+        String token = service.generateToken(alice);
+        service.parseClaims(token);
+
+        clock.advance(Duration.ofSeconds(11));
+
+        assertThatThrownBy(() -> service.parseClaims(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        JwtService service = new JwtService(SECRET, 60_000, 100, 30_000, clock);
+        String token = service.generateToken(alice);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThatThrownBy(() -> service.parseClaims(tampered)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void signsWithRsaAndEcKeysFromJwks() throws IOException {
+        Path rsaFile = writeJwks("rsa.json", privateJwk("rsa-1", Jwts.SIG.RS256));
+        Path ecFile = writeJwks("ec.json", privateJwk("ec-1", Jwts.SIG.ES256));
+
+        for (Path file : new Path[]{rsaFile, ecFile}) {
+            JwtService service = jwksService(file);
+            String token = service.generateToken(alice);
+
+            assertThat(service.parseClaims(token).getSubject()).isEqualTo("alice");
+            assertThat(service.isTokenValid(token, alice)).isTrue();
+        }
+        assertThat(header(jwksService(rsaFile).generateToken(alice))).contains("\"RS256\"", "\"rsa-1\"");
+        assertThat(header(jwksService(ecFile).generateToken(alice))).contains("\"ES256\"", "\"ec-1\"");
+    }
+
+    @Test
+    void rotatedKeysArePickedUpWithoutRestart() throws IOException {
+        String oldKey = privateJwk("old", Jwts.SIG.ES256);
+        String newKey = privateJwk("new", Jwts.SIG.ES256);
+        Path file = writeJwks("keys.json", oldKey);
+        JwtService service = jwksService(file);
+        String oldToken = service.generateToken(alice);
+        service.parseClaims(oldToken);
+
+        // New key appended: it signs from now on, tokens from the old key still verify
+        rewrite(file, oldKey, newKey);
+        clock.advance(Duration.ofSeconds(6));
+        String newToken = service.generateToken(alice);
+
+        assertThat(header(newToken)).contains("\"new\"");
+        assertThat(service.parseClaims(newToken).getSubject()).isEqualTo("alice");
+        assertThat(service.parseClaims(oldToken).getSubject()).isEqualTo("alice");
+
+        // Old key removed: its tokens are rejected even though they were cached
+        rewrite(file, newKey);
+        clock.advance(Duration.ofSeconds(6));
+
+        assertThatThrownBy(() -> service.parseClaims(oldToken)).isInstanceOf(JwtException.class);
+        assertThat(service.parseClaims(newToken).getSubject()).isEqualTo("alice");
+    }
+
+    @Test
+    void failedReloadKeepsThePreviousKeys() throws IOException {
+        String key = privateJwk("k1", Jwts.SIG.ES256);
+        Path file = writeJwks("keys.json", key);
+        JwtService service = jwksService(file);
+        String cachedToken = service.generateToken(alice);
+        service.parseClaims(cachedToken);
+        String uncachedToken = service.generateToken(User.withUsername("bob").password("x").build());
+
+        Files.writeString(file, "{\"keys\": [");
+        Files.setLastModifiedTime(file, FileTime.from(clock.instant().plusSeconds(1)));
+        clock.advance(Duration.ofSeconds(6));
+
+        assertThat(service.parseClaims(cachedToken).getSubject()).isEqualTo("alice");
+        assertThat(service.parseClaims(uncachedToken).getSubject()).isEqualTo("bob");
+        assertThat(header(service.generateToken(alice))).contains("\"k1\"");
+
+        // Fixing the file is picked up on a later check
+        rewrite(file, key, privateJwk("k2", Jwts.SIG.ES256));
+        clock.advance(Duration.ofSeconds(6));
+        assertThat(header(service.generateToken(alice))).contains("\"k2\"");
+        assertThat(service.parseClaims(cachedToken).getSubject()).isEqualTo("alice");
+    }
+
+    @Test
+    void tokenWithUnknownKidIsRejected() throws IOException {
+        JwtService issuer = jwksService(writeJwks("a.json", privateJwk("a", Jwts.SIG.ES256)));
+        JwtService verifier = jwksService(writeJwks("b.json", privateJwk("b", Jwts.SIG.ES256)));
+        String unknownKid = issuer.generateToken(alice);
+        String noKid = new JwtService(SECRET, 60_000, 100, 30_000, clock).generateToken(alice);
+
+        assertThatThrownBy(() -> verifier.parseClaims(unknownKid)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> verifier.parseClaims(noKid)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void publicOnlyKeySetVerifiesButCannotSign() throws IOException {
+        KeyPair pair = Jwts.SIG.RS256.keyPair().build();
+        JwtService issuer = jwksService(writeJwks("private.json", privateJwk("k1", pair)));
+        String publicJwk = Jwks.json(Jwks.builder().key(pair.getPublic()).id("k1").build());
+        JwtService verifier = jwksService(writeJwks("public.json", publicJwk));
+
+        assertThat(verifier.parseClaims(issuer.generateToken(alice)).getSubject()).isEqualTo("alice");
+        assertThatThrownBy(() -> verifier.generateToken(alice)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private JwtService jwksService(Path file) {
+        return new JwtService(JwtService.KeySource.jwks(file, null, 5_000), 60_000, 100, 300_000, clock);
+    }
+
+    private static String privateJwk(String kid, SignatureAlgorithm algorithm) {
+        return privateJwk(kid, algorithm.keyPair().build());
+    }
+
+    private static String privateJwk(String kid, KeyPair pair) {
+        return Jwks.UNSAFE_JSON(Jwks.builder().keyPair(pair).id(kid).build());
+    }
+
+    private Path writeJwks(String name, String... keys) throws IOException {
+        return Files.writeString(dir.resolve(name), "{\"keys\":[" + String.join(",", keys) + "]}");
+    }
+
+    private void rewrite(Path file, String... keys) throws IOException {
+        FileTime before = Files.getLastModifiedTime(file);
+        writeJwks(file.getFileName().toString(), keys);
+        // Coarse file system timestamps could hide a quick rewrite
+        Files.setLastModifiedTime(file, FileTime.from(before.toInstant().plusSeconds(1)));
+    }
+
+    private static String header(String token) {
+        return new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+    }
+}
@@ -0,0 +1,29 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+final class Dictionaries {
+
+    private Dictionaries() {
+    }
+
+    /**
+     * Random 3-12 character words over a skewed alphabet, so that a few letters are much more
+     * common than the rest and the trie gets long posting lists near the root, like real text.
+     */
+    static List<String> randomWords(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = 3 + random.nextInt(10);
+            StringBuilder word = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + Math.min(25, (int) Math.abs(random.nextGaussian() * 6))));
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class FuzzySearchBenchmark {
+
+    private static final int QUERIES = 1 << 10;
+    private static final int MIN_QUERY_LENGTH = 6;
+
+    @Param({"10000", "100000", "1000000"})
+    private int dictionarySize;
+
+    @Param({"1", "2"})
+    private int maxEdits;
+
+    private Trie prefixTrie;
+    private final String[] typos = new String[QUERIES];
+    private final String[] wildcards = new String[QUERIES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<String> words = Dictionaries.randomWords(dictionarySize, 42);
+        prefixTrie = new Trie(words);
+
+        // Whole words with one character replaced, like a user typing a word they half remember.
+        // Two edits away from a 3 letter word is most of the dictionary, so those are left out.
+        Random random = new Random(7);
+        for (int i = 0; i < QUERIES; i++) {
+            char[] word = words.get(random.nextInt(words.size())).toCharArray();
+            if (word.length < MIN_QUERY_LENGTH) {
+                i--;
+                continue;
+            }
+            int position = random.nextInt(word.length);
+            word[position] = (char) ('a' + random.nextInt(26));
+            typos[i] = new String(word);
+            word[position] = '?';
+            wildcards[i] = new String(word);
+        }
+    }
+
+    @Benchmark
+    public Set<Integer> fuzzySearch() {
+        return prefixTrie.fuzzySearch(typos[next++ & (QUERIES - 1)], maxEdits);
+    }
+
+    @Benchmark
+    public Set<Integer> wildcardSearch() {
+        return prefixTrie.fuzzySearch(wildcards[next++ & (QUERIES - 1)], maxEdits - 1);
+    }
+}
@@ -0,0 +1,46 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class TrieBuildBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int dictionarySize;
+
+    private List<String> words;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        words = Dictionaries.randomWords(dictionarySize, 42);
+    }
+
+    @Benchmark
+    public Trie buildTrie() {
+        return new Trie(words);
+    }
+
+    @Benchmark
+    public SuffixTrie buildSuffixTrie() {
+        return new SuffixTrie(words);
+    }
+
+    @Benchmark
+    public WordFilter buildWordFilter() {
+        return new WordFilter(words);
+    }
+
+    @Benchmark
+    public WordFilter buildWordFilterParallel() {
+        return new WordFilter(words, ForkJoinPool.commonPool());
+    }
+}
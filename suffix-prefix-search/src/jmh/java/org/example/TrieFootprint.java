@@ -0,0 +1,80 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Retained heap, build time and {@code search} latency of the original {@link NodeTrie} against the flat
+ * {@link Trie}, each holding a prefix and a suffix trie over the same random dictionary. Retained heap is the used
+ * heap after a full GC with the tries reachable, minus the same without them, so run it with a stop-the-world
+ * collector and a heap large enough for the node version:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="--enable-preview -XX:+UseParallelGC -Xmx8g -cp %classpath org.example.TrieFootprint 1000000"
+ * </pre>
+ * The argument is the dictionary size (default 1M words of 3-12 characters).
+ */
+public final class TrieFootprint {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final int QUERIES = 100_000;
+
+    private TrieFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<String> words = Dictionaries.randomWords(size, 42);
+        String[] queries = new String[QUERIES];
+        Random random = new Random(7);
+        for (int i = 0; i < queries.length; i++) {
+            String word = words.get(random.nextInt(words.size()));
+            queries[i] = word.substring(0, Math.min(word.length(), 3 + random.nextInt(3)));
+        }
+
+        System.out.printf("%d words, %s%n", size, Runtime.version());
+        System.out.printf("%-24s %14s %12s %16s%n", "Implementation", "Retained heap", "Build time", "search (3-5 chars)");
+        measure("HashMap nodes", () -> new NodeTrie[]{new NodeTrie(words, false), new NodeTrie(words, true)},
+                tries -> tries[0]::search, queries);
+        measure("Flat arrays", () -> new Trie[]{new Trie(words), new SuffixTrie(words)},
+                tries -> tries[0]::search, queries);
+    }
+
+    private static <T> void measure(String name, Supplier<T> build, Function<T, Function<String, Set<Integer>>> search,
+                                    String[] queries) {
+        long before = usedAfterGc();
+        long start = System.nanoTime();
+        T tries = build.get();
+        long buildNanos = System.nanoTime() - start;
+        long retained = usedAfterGc() - before;
+
+        Function<String, Set<Integer>> lookup = search.apply(tries);
+        long matches = 0;
+        // One untimed pass so the JIT has compiled the lookup
+        for (String query : queries) {
+            matches += lookup.apply(query).size();
+        }
+        start = System.nanoTime();
+        for (String query : queries) {
+            matches += lookup.apply(query).size();
+        }
+        long searchNanos = System.nanoTime() - start;
+
+        System.out.printf("%-24s %11d MB %10.1f s %13.1f us   (%d matches)%n", name, retained >> 20, buildNanos / 1e9,
+                searchNanos / 1e3 / queries.length, matches);
+        Reference.reachabilityFence(tries);
+    }
+
+    private static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,123 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToDoubleFunction;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class WordFilterBenchmark {
+
+    private static final int QUERIES = 1 << 12;
+    private static final int TOP_K = 10;
+
+    public enum AffixLength {
+        SHORT(0, 2),
+        MEDIUM(2, 4),
+        LONG(4, 8);
+
+        private final int min;
+        private final int max;
+
+        AffixLength(int min, int max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        private int pick(Random random, int wordLength) {
+            return Math.min(wordLength, min + random.nextInt(max - min + 1));
+        }
+    }
+
+    @Param({"10000", "100000", "1000000"})
+    private int dictionarySize;
+
+    @Param({"SHORT", "MEDIUM", "LONG"})
+    private AffixLength affixLength;
+
+    private Trie prefixTrie;
+    private IntToDoubleFunction scorer;
+    private TopKCompletions completions;
+    private WordFilter wordFilter;
+    private final String[] prefixes = new String[QUERIES];
+    private final String[] suffixes = new String[QUERIES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<String> words = Dictionaries.randomWords(dictionarySize, 42);
+        prefixTrie = new Trie(words);
+        double[] frequency = new Random(11).doubles(words.size()).toArray();
+        scorer = index -> frequency[index];
+        completions = prefixTrie.rank(scorer, TOP_K);
+        wordFilter = new WordFilter(words);
+
+        // Affixes are cut from real words so most queries hit something
+        Random random = new Random(7);
+        for (int i = 0; i < QUERIES; i++) {
+            String word = words.get(random.nextInt(words.size()));
+            prefixes[i] = word.substring(0, affixLength.pick(random, word.length()));
+            String other = words.get(random.nextInt(words.size()));
+            suffixes[i] = other.substring(other.length() - affixLength.pick(random, other.length()));
+        }
+    }
+
+    @Benchmark
+    public int wordFilterF() {
+        int i = next++ & (QUERIES - 1);
+        return wordFilter.f(prefixes[i], suffixes[i]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int trieLocate() {
+        return prefixTrie.locate(prefixes[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Set<Integer> trieSearch() {
+        return prefixTrie.search(prefixes[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int[] trieTopK() {
+        return prefixTrie.topK(prefixes[next++ & (QUERIES - 1)], TOP_K, scorer);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int[] cachedTopK() {
+        return completions.topK(prefixes[next++ & (QUERIES - 1)], TOP_K);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(WordFilterBenchmark.class.getSimpleName())
+                .include(TrieBuildBenchmark.class.getSimpleName())
+                .include(FuzzySearchBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
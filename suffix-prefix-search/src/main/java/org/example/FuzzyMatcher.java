@@ -0,0 +1,138 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Depth-first walk of a {@link Trie} that carries one row of the edit distance matrix between
+ * the pattern and the path walked so far.
+ * <p>
+ * {@code row[j]} is the cheapest way to turn the path into the first {@code j} pattern characters.
+ * {@code ?} matches any one character for free and {@code *} any run of characters, including
+ * none. Once {@code row[m]} is within budget, the path is a fuzzy match for the whole pattern, so
+ * every word below the node matches and its postings are taken without descending. Once the
+ * smallest entry in the row is over budget, no longer path can get back under it, so the subtree
+ * is pruned.
+ * <p>
+ * Without {@code *}, a cell more than {@code maxEdits} off the diagonal costs at least the length
+ * difference, so only that band of each row is filled and the cells either side of it are set to
+ * {@code maxEdits + 1}.
+ */
+final class FuzzyMatcher {
+    private static final char ANY_CHAR = '?';
+    private static final char ANY_RUN = '*';
+    private static final int NO_LABEL = -1;
+
+    private final Trie trie;
+    private final char[] pattern;
+    private final int maxEdits;
+    private final boolean banded;
+    private final Set<Integer> matches = new HashSet<>();
+    private int[][] rows;
+
+    FuzzyMatcher(Trie trie, String pattern, int maxEdits) {
+        if (maxEdits < 0) {
+            throw new IllegalArgumentException("maxEdits must not be negative: " + maxEdits);
+        }
+        this.trie = trie;
+        this.pattern = pattern.toCharArray();
+        this.maxEdits = maxEdits;
+        this.banded = pattern.indexOf(ANY_RUN) < 0;
+        this.rows = new int[pattern.length() + maxEdits + 2][pattern.length() + 1];
+    }
+
+    Set<Integer> collect() {
+        int[] first = rows[0];
+        for (int j = 1; j <= pattern.length; j++) {
+            first[j] = first[j - 1] + (pattern[j - 1] == ANY_RUN ? 0 : 1);
+        }
+        visit(Trie.ROOT, 0);
+        return matches;
+    }
+
+    private void visit(int node, int depth) {
+        int[] row = rows[depth];
+        // Cells past the band are never written
+        boolean inBand = !banded || pattern.length - depth <= maxEdits;
+        if (inBand && row[pattern.length] <= maxEdits) {
+            for (int i = trie.firstPosting(node); i < trie.postingLimit(node); i++) {
+                matches.add(trie.postingAt(i));
+            }
+            return;
+        }
+
+        if (depth + 1 == rows.length) {
+            // Only a '*' lets a path outgrow pattern length + edits
+            rows = Arrays.copyOf(rows, rows.length * 2);
+        }
+        if (rows[depth + 1] == null) {
+            rows[depth + 1] = new int[pattern.length + 1];
+        }
+        int[] next = rows[depth + 1];
+        if (advance(row, next, depth + 1, NO_LABEL) <= maxEdits) {
+            for (int child = trie.firstChild(node); child < trie.childLimit(node); child++) {
+                if (advance(row, next, depth + 1, trie.label(child)) <= maxEdits) {
+                    visit(child, depth + 1);
+                }
+            }
+            return;
+        }
+
+        // Every label missing from the band gives the row just computed, which is over budget,
+        // so only the band's own characters are worth looking up
+        int from = banded ? Math.max(1, depth + 1 - maxEdits) : 1;
+        int to = banded ? Math.min(pattern.length, depth + 1 + maxEdits) : pattern.length;
+        for (int j = from; j <= to; j++) {
+            char c = pattern[j - 1];
+            if (c == ANY_CHAR || c == ANY_RUN || indexOf(c, from, j) >= 0) {
+                continue;
+            }
+            int child = trie.child(node, c);
+            if (child != Trie.NOT_FOUND && advance(row, next, depth + 1, c) <= maxEdits) {
+                visit(child, depth + 1);
+            }
+        }
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int j = from; j < to; j++) {
+            if (pattern[j - 1] == c) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fills {@code next} for the path extended to {@code length} characters by {@code c} and
+     * returns its smallest entry. {@link #NO_LABEL} stands for a character matching no literal.
+     */
+    private int advance(int[] row, int[] next, int length, int c) {
+        int from = 1;
+        int to = pattern.length;
+        if (banded) {
+            from = Math.max(1, length - maxEdits);
+            to = Math.min(pattern.length, length + maxEdits);
+            if (from > to) {
+                return maxEdits + 1;
+            }
+            if (to < pattern.length) {
+                next[to + 1] = maxEdits + 1;
+            }
+        }
+        next[from - 1] = from == 1 ? length : maxEdits + 1;
+        int min = next[from - 1];
+        for (int j = from; j <= to; j++) {
+            char p = pattern[j - 1];
+            if (p == ANY_RUN) {
+                next[j] = Math.min(next[j - 1], row[j]);
+            } else {
+                int substitution = row[j - 1] + (p == c || p == ANY_CHAR ? 0 : 1);
+                next[j] = Math.min(substitution, Math.min(row[j], next[j - 1]) + 1);
+            }
+            min = Math.min(min, next[j]);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,170 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only {@link WordFilter} answering queries straight from a memory-mapped snapshot
+ * written by {@link WordFilter#save(Path)}. Opening it only maps the file, so startup does
+ * not depend on the dictionary size, and every JVM mapping the same file shares its pages.
+ */
+public final class MappedWordFilter implements AutoCloseable {
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfChar CHAR = ValueLayout.JAVA_CHAR.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final Arena arena;
+    private final int wordCount;
+    private final MappedTrie prefixTrie;
+    private final MappedTrie suffixTrie;
+
+    private MappedWordFilter(Arena arena, MemorySegment segment) {
+        this.arena = arena;
+        if (segment.byteSize() < SnapshotWriter.HEADER_BYTES
+                || segment.get(INT, 0) != SnapshotWriter.MAGIC
+                || segment.get(INT, 4) != SnapshotWriter.VERSION) {
+            throw new IllegalArgumentException("Not a word filter snapshot");
+        }
+        this.wordCount = segment.get(INT, 8);
+        this.prefixTrie = new MappedTrie(segment, SnapshotWriter.HEADER_BYTES, false);
+        this.suffixTrie = new MappedTrie(segment, prefixTrie.end, true);
+    }
+
+    public static MappedWordFilter open(Path path) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            return new MappedWordFilter(arena, segment);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    public int f(String prefix, String suffix) {
+        int prefixNode = prefixTrie.locate(prefix);
+        int suffixNode = suffixTrie.locate(suffix);
+        if (prefixNode == Trie.NOT_FOUND || suffixNode == Trie.NOT_FOUND) {
+            return -1;
+        }
+        return prefixTrie.lastCommonIndex(prefixNode, suffixTrie, suffixNode);
+    }
+
+    /**
+     * Number of word indexes handed out when the snapshot was written, removed ones included.
+     */
+    public int wordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Unmaps the file. The filter must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    /**
+     * Same layout and lookups as {@link Trie}, reading the arrays from byte offsets in the mapping.
+     */
+    private static final class MappedTrie {
+        private final MemorySegment segment;
+        private final boolean reversed;
+        private final long childStart;
+        private final long postingStart;
+        private final long postings;
+        private final long labels;
+        private final long end;
+
+        private MappedTrie(MemorySegment segment, long offset, boolean reversed) {
+            this.segment = segment;
+            this.reversed = reversed;
+            int nodeCount = segment.get(INT, offset);
+            int postingCount = segment.get(INT, offset + 4);
+            this.childStart = offset + 8;
+            this.postingStart = childStart + (nodeCount + 1L) * Integer.BYTES;
+            this.postings = postingStart + (nodeCount + 1L) * Integer.BYTES;
+            this.labels = postings + (long) postingCount * Integer.BYTES;
+            this.end = labels + (nodeCount + nodeCount % 2L) * Character.BYTES;
+        }
+
+        private int locate(String query) {
+            int node = Trie.ROOT;
+            for (int i = 0; i < query.length() && node != Trie.NOT_FOUND; i++) {
+                node = child(node, query.charAt(reversed ? query.length() - 1 - i : i));
+            }
+            return node;
+        }
+
+        private int child(int node, char c) {
+            int low = intAt(childStart, node);
+            int high = intAt(childStart, node + 1) - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char label = segment.get(CHAR, labels + (long) mid * Character.BYTES);
+                if (label < c) {
+                    low = mid + 1;
+                } else if (label > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return Trie.NOT_FOUND;
+        }
+
+        private int lastCommonIndex(int node, MappedTrie other, int otherNode) {
+            int aFrom = intAt(postingStart, node);
+            int i = intAt(postingStart, node + 1) - 1;
+            int bFrom = other.intAt(other.postingStart, otherNode);
+            int j = other.intAt(other.postingStart, otherNode + 1) - 1;
+
+            while (i >= aFrom && j >= bFrom) {
+                int x = intAt(postings, i);
+                int y = other.intAt(other.postings, j);
+                if (x == y) {
+                    return x;
+                }
+                if (x > y) {
+                    i = gallopDown(aFrom, i, y);
+                } else {
+                    j = other.gallopDown(bFrom, j, x);
+                }
+            }
+            return Trie.NOT_FOUND;
+        }
+
+        private int gallopDown(int from, int high, int target) {
+            int upper = high;
+            int step = 1;
+            int lower = high - step;
+            while (lower >= from && intAt(postings, lower) > target) {
+                upper = lower;
+                step <<= 1;
+                lower = high - step;
+            }
+
+            lower = Math.max(lower, from - 1);
+            while (upper - lower > 1) {
+                int mid = (lower + upper) >>> 1;
+                if (intAt(postings, mid) <= target) {
+                    lower = mid;
+                } else {
+                    upper = mid;
+                }
+            }
+            return lower;
+        }
+
+        private int intAt(long array, int index) {
+            return segment.get(INT, array + (long) index * Integer.BYTES);
+        }
+    }
+}
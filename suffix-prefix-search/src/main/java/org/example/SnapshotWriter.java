@@ -0,0 +1,126 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Writes the snapshot file read by {@link MappedWordFilter}. All values are little-endian:
+ * <pre>
+ * header:  int magic, int version, int wordCount, int reserved
+ * trie x2: int nodeCount, int postingCount,
+ *          int[nodeCount + 1] childStart, int[nodeCount + 1] postingStart, int[postingCount] postings,
+ *          char[nodeCount] labels, padded to a multiple of 4 bytes
+ * </pre>
+ * The prefix trie comes first, followed by the suffix trie.
+ * <p>
+ * The data goes to a temporary file next to the target, which {@link #commit()} moves over it
+ * in one step. A process that still maps the old file keeps reading the old file, and a crash
+ * part way through leaves the old file untouched. Closing without committing discards the
+ * temporary file.
+ * <p>
+ * A temporary file is created readable by its owner only. Before the move it takes the
+ * permissions of the file it replaces, or {@code rw-r--r--} for a new file, so processes
+ * running as other users can still map the snapshot.
+ */
+final class SnapshotWriter implements AutoCloseable {
+    static final int MAGIC = 0x53505346; // "SPSF"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final Set<PosixFilePermission> NEW_FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+    private final Path path;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private boolean committed;
+
+    SnapshotWriter(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.toAbsolutePath().getParent();
+        this.temporary = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        this.channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+    }
+
+    void putInt(int value) throws IOException {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void putInts(int[] values) throws IOException {
+        for (int value : values) {
+            putInt(value);
+        }
+    }
+
+    void putChars(char[] values) throws IOException {
+        for (char value : values) {
+            ensureRemaining(Character.BYTES);
+            buffer.putChar(value);
+        }
+        if (values.length % 2 != 0) {
+            ensureRemaining(Character.BYTES);
+            buffer.putChar('\0');
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Makes the written data durable and replaces the target file with it.
+     */
+    void commit() throws IOException {
+        flush();
+        channel.force(true);
+        channel.close();
+        copyPermissions();
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    private void copyPermissions() throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(temporary, PosixFileAttributeView.class);
+        if (view == null) {
+            // Not a POSIX file system; the temporary file gets the default permissions
+            return;
+        }
+        Set<PosixFilePermission> permissions = NEW_FILE_PERMISSIONS;
+        try {
+            permissions = Files.getPosixFilePermissions(path);
+        } catch (NoSuchFileException e) {
+            // First save
+        }
+        view.setPermissions(permissions);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            try (channel) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+}
@@ -1,22 +1,46 @@
 package org.example;
 
 import java.util.ArrayList;
-import java.util.Set;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 public class SuffixTrie extends Trie {
     SuffixTrie(List<String> words) {
+        this(words, 0);
+    }
+
+    SuffixTrie(List<String> words, int firstIndex) {
         List<String> reversedWords = new ArrayList<>();
         for (String word : words) {
-            StringBuilder reversedWord = new StringBuilder(word).reverse();
-            reversedWords.add(reversedWord.toString());
+            reversedWords.add(reverse(word));
         }
         // Flexible constructor bodies
-        super(reversedWords); // Initialize with reverse order for suffixes
+        super(reversedWords, firstIndex); // Initialize with reverse order for suffixes
+    }
+
+    SuffixTrie(List<String> words, int firstIndex, ForkJoinPool pool) {
+        List<String> reversedWords = pool.submit(() -> words.parallelStream().map(SuffixTrie::reverse).toList()).join();
+        super(reversedWords, firstIndex, pool);
     }
 
     @Override
-    public Set<Integer> search(String query) {
-        return super.search(new StringBuilder(query).reverse().toString());
+    int locate(String query) {
+        // Walk the query back to front instead of reversing it into a new String
+        int node = ROOT;
+        for (int i = query.length() - 1; i >= 0 && node != NOT_FOUND; i--) {
+            node = child(node, query.charAt(i));
+        }
+        return node;
+    }
+
+    @Override
+    Set<Integer> fuzzySearch(String pattern, int maxEdits) {
+        // Edit distance and both wildcards read the same backwards
+        return super.fuzzySearch(reverse(pattern), maxEdits);
+    }
+
+    private static String reverse(String word) {
+        return word == null ? null : new StringBuilder(word).reverse().toString();
     }
 }
@@ -0,0 +1,115 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Best-{@code maxK} completions cached per trie node for a fixed scorer, so a query costs
+ * the prefix walk plus copying {@code k} indexes no matter how many words share the prefix.
+ * <p>
+ * Only nodes with more than {@code maxK} postings get a cache entry; smaller nodes are ranked
+ * on the fly, which is bounded by {@code maxK} anyway. Entries are filled bottom-up: a node's
+ * best words come from the words ending at it plus the best words of each child. Scores are
+ * read once while building, so build a new instance when they change.
+ */
+public final class TopKCompletions {
+    private static final int NOT_CACHED = -1;
+
+    private final Trie trie;
+    private final IntToDoubleFunction scorer;
+    private final int maxK;
+    private final int[] slot;
+    private final int[] ranked;
+
+    TopKCompletions(Trie trie, IntToDoubleFunction scorer, int maxK) {
+        if (maxK < 1) {
+            throw new IllegalArgumentException("maxK must be positive: " + maxK);
+        }
+        this.trie = trie;
+        this.scorer = scorer;
+        this.maxK = maxK;
+
+        int nodeCount = trie.nodeCount();
+        this.slot = new int[nodeCount];
+        int cached = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            slot[node] = trie.postingCount(node) > maxK ? cached++ : NOT_CACHED;
+        }
+        this.ranked = new int[cached * maxK];
+        if (cached == 0) {
+            return;
+        }
+
+        // The root holds every word; score each once and find the node it ends at
+        int rootFrom = trie.firstPosting(Trie.ROOT);
+        int rootLimit = trie.postingLimit(Trie.ROOT);
+        int minIndex = trie.postingAt(rootFrom);
+        int range = trie.postingAt(rootLimit - 1) - minIndex + 1;
+        double[] scores = new double[range];
+        for (int i = rootFrom; i < rootLimit; i++) {
+            int index = trie.postingAt(i);
+            scores[index - minIndex] = scorer.applyAsDouble(index);
+        }
+        int[] terminal = new int[range];
+        for (int node = 0; node < nodeCount; node++) {
+            // Breadth-first ids grow with depth, so the last write is the deepest node
+            for (int i = trie.firstPosting(node); i < trie.postingLimit(node); i++) {
+                terminal[trie.postingAt(i) - minIndex] = node;
+            }
+        }
+        int[] endingStart = new int[nodeCount + 1];
+        for (int i = rootFrom; i < rootLimit; i++) {
+            endingStart[terminal[trie.postingAt(i) - minIndex] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            endingStart[node + 1] += endingStart[node];
+        }
+        int[] ending = new int[rootLimit - rootFrom];
+        int[] cursor = Arrays.copyOf(endingStart, nodeCount);
+        for (int i = rootFrom; i < rootLimit; i++) {
+            int index = trie.postingAt(i);
+            ending[cursor[terminal[index - minIndex]]++] = index;
+        }
+
+        // Children have larger ids than their parent, so walking ids backwards is bottom-up
+        TopKHeap heap = new TopKHeap(maxK);
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            if (slot[node] == NOT_CACHED) {
+                continue;
+            }
+            heap.clear();
+            for (int i = endingStart[node]; i < endingStart[node + 1]; i++) {
+                heap.offer(ending[i], scores[ending[i] - minIndex]);
+            }
+            for (int child = trie.firstChild(node); child < trie.childLimit(node); child++) {
+                if (slot[child] != NOT_CACHED) {
+                    for (int i = slot[child] * maxK; i < (slot[child] + 1) * maxK; i++) {
+                        heap.offer(ranked[i], scores[ranked[i] - minIndex]);
+                    }
+                } else {
+                    for (int i = trie.firstPosting(child); i < trie.postingLimit(child); i++) {
+                        heap.offer(trie.postingAt(i), scores[trie.postingAt(i) - minIndex]);
+                    }
+                }
+            }
+            heap.drainInto(ranked, slot[node] * maxK);
+        }
+    }
+
+    /**
+     * Returns up to {@code k} indexes of the words starting with {@code prefix} (ending with
+     * it, for a {@link SuffixTrie}), best score first.
+     */
+    public int[] topK(String prefix, int k) {
+        int node = trie.locate(prefix);
+        if (node == Trie.NOT_FOUND || k <= 0) {
+            return new int[0];
+        }
+        if (k <= maxK && slot[node] != NOT_CACHED) {
+            int from = slot[node] * maxK;
+            return Arrays.copyOfRange(ranked, from, from + k);
+        }
+        // Either a small node or more results than cached: rank the postings directly
+        return trie.topK(node, k, scorer);
+    }
+}
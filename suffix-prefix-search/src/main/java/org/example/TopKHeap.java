@@ -0,0 +1,86 @@
+package org.example;
+
+/**
+ * Bounded min-heap over primitive arrays that keeps the {@code capacity} best word indexes
+ * offered to it. Higher scores win; on equal scores the larger (newer) index wins.
+ */
+final class TopKHeap {
+    private final int[] indexes;
+    private final double[] scores;
+    private int size;
+
+    TopKHeap(int capacity) {
+        this.indexes = new int[capacity];
+        this.scores = new double[capacity];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void offer(int index, double score) {
+        if (size < indexes.length) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(score, index, scores[parent], indexes[parent])) {
+                    break;
+                }
+                indexes[i] = indexes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            indexes[i] = index;
+            scores[i] = score;
+        } else if (size > 0 && worse(scores[0], indexes[0], score, index)) {
+            siftDown(index, score);
+        }
+    }
+
+    /**
+     * Empties the heap into {@code out} starting at {@code offset}, best candidate first.
+     */
+    void drainInto(int[] out, int offset) {
+        for (int i = size - 1; i >= 0; i--) {
+            out[offset + i] = indexes[0];
+            size--;
+            if (size > 0) {
+                siftDown(indexes[size], scores[size]);
+            }
+        }
+    }
+
+    int[] drain() {
+        int[] out = new int[size];
+        drainInto(out, 0);
+        return out;
+    }
+
+    private void siftDown(int index, double score) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && worse(scores[right], indexes[right], scores[child], indexes[child])) {
+                child = right;
+            }
+            if (!worse(scores[child], indexes[child], score, index)) {
+                break;
+            }
+            indexes[i] = indexes[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        indexes[i] = index;
+        scores[i] = score;
+    }
+
+    private static boolean worse(double score, int index, double otherScore, int otherIndex) {
+        return score < otherScore || (score == otherScore && index < otherIndex);
+    }
+}
@@ -1,46 +1,511 @@
 package org.example;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntToDoubleFunction;
 
+/**
+ * Array-backed trie. Nodes are numbered in breadth-first order, so the children of a node
+ * are the contiguous ids {@code [childStart[node], childStart[node + 1])}, sorted by label.
+ * Every node owns a slice of {@link #postings} holding the ascending indexes of the words
+ * that pass through it.
+ */
 public class Trie {
-    private final HashMap<Character, Trie> children;
-    private final Set<Integer> indexes;
+    static final int ROOT = 0;
+    static final int NOT_FOUND = -1;
 
-    private Trie(){
-        this.children = new HashMap<>();
-        this.indexes = new HashSet<>();
-    }
+    private final int[] childStart;
+    private final char[] labels;
+    private final int[] postingStart;
+    private final int[] postings;
 
     protected Trie(List<String> words) {
-        this(); // Ensure children is initialized
-        for(int index = 0; index < words.size(); index++) {
+        this(words, 0);
+    }
 
-            this.indexes.add(index);
-            String word = words.get(index);
+    /**
+     * Builds a trie whose postings number {@code words} starting at {@code firstIndex}.
+     * {@code null} entries keep their index reserved but are left out of the trie.
+     */
+    protected Trie(List<String> words, int firstIndex) {
+        this(words, firstIndex, presentPositions(words));
+    }
 
-            Trie node = this;
-            for (char c : word.toCharArray()) {
-                if (node.children.get(c) == null) {
-                    node.children.put(c, new Trie());
-                }
-                node = node.children.get(c);
-                node.indexes.add(index);
+    /**
+     * Builds the same trie as {@link #Trie(List, int)} on {@code pool}: the words are split
+     * by first character, each group becomes a sub-trie of its own, and the sub-tries are
+     * then stitched together under a common root.
+     */
+    protected Trie(List<String> words, int firstIndex, ForkJoinPool pool) {
+        this(pool.invoke(new ParallelBuild(words, firstIndex)));
+    }
+
+    private Trie(Trie built) {
+        this.childStart = built.childStart;
+        this.labels = built.labels;
+        this.postingStart = built.postingStart;
+        this.postings = built.postings;
+    }
+
+    private Trie(int[] childStart, char[] labels, int[] postingStart, int[] postings) {
+        this.childStart = childStart;
+        this.labels = labels;
+        this.postingStart = postingStart;
+        this.postings = postings;
+    }
+
+    /**
+     * Builds a trie over the words at the ascending {@code positions} of {@code words}.
+     */
+    private Trie(List<String> words, int firstIndex, int[] positions) {
+        Builder builder = new Builder();
+        for (int position : positions) {
+            builder.insert(words.get(position));
+        }
+
+        // Renumber the nodes breadth-first so that siblings end up next to each other
+        int nodeCount = builder.size;
+        int[] order = new int[nodeCount];
+        int[] rank = new int[nodeCount];
+        this.childStart = new int[nodeCount + 1];
+        this.labels = new char[nodeCount];
+
+        int tail = 1;
+        for (int head = 0; head < nodeCount; head++) {
+            int node = order[head];
+            rank[node] = head;
+            labels[head] = builder.label[node];
+            childStart[head] = tail;
+
+            int first = tail;
+            for (int child = builder.firstChild[node]; child != NOT_FOUND; child = builder.nextSibling[child]) {
+                order[tail++] = child;
+            }
+            sortByLabel(order, first, tail, builder.label);
+        }
+        childStart[nodeCount] = nodeCount;
+
+        this.postingStart = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            postingStart[rank[node] + 1] = builder.postingCount[node];
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            postingStart[node + 1] += postingStart[node];
+        }
+
+        // Words are visited in index order, so every posting slice comes out sorted
+        this.postings = new int[postingStart[nodeCount]];
+        int[] cursor = Arrays.copyOf(postingStart, nodeCount);
+        for (int position : positions) {
+            String word = words.get(position);
+            int index = firstIndex + position;
+            int node = ROOT;
+            postings[cursor[node]++] = index;
+            for (int i = 0; i < word.length(); i++) {
+                node = child(node, word.charAt(i));
+                postings[cursor[node]++] = index;
             }
         }
     }
 
     Set<Integer> search(String query) {
-        Trie node = this;
+        int node = locate(query);
+        if (node == NOT_FOUND) {
+            return new HashSet<>(); // No matches found
+        }
 
-        for (char ch : query.toCharArray()){
+        Set<Integer> matches = new HashSet<>(postingCount(node) * 2);
+        for (int i = postingStart[node]; i < postingStart[node + 1]; i++) {
+            matches.add(postings[i]);
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the indexes of the words starting with something within {@code maxEdits}
+     * insertions, deletions or substitutions of {@code pattern}. In the pattern {@code ?}
+     * stands for any single character and {@code *} for any run of characters.
+     */
+    Set<Integer> fuzzySearch(String pattern, int maxEdits) {
+        return new FuzzyMatcher(this, pattern, maxEdits).collect();
+    }
+
+    /**
+     * Returns up to {@code k} indexes of the words starting with {@code prefix}, best
+     * {@code scorer} result first. Only a {@code k}-sized heap is kept while the node's
+     * postings are scanned, so nothing proportional to the number of matches is allocated.
+     */
+    int[] topK(String prefix, int k, IntToDoubleFunction scorer) {
+        int node = locate(prefix);
+        return node == NOT_FOUND ? new int[0] : topK(node, k, scorer);
+    }
+
+    int[] topK(int node, int k, IntToDoubleFunction scorer) {
+        TopKHeap heap = new TopKHeap(Math.max(0, Math.min(k, postingCount(node))));
+        for (int i = postingStart[node]; i < postingStart[node + 1]; i++) {
+            heap.offer(postings[i], scorer.applyAsDouble(postings[i]));
+        }
+        return heap.drain();
+    }
 
-            if (node.children.get(ch) == null) {
-                return new HashSet<>(); // No matches found
+    /**
+     * Precomputes the best {@code maxK} completions of every node for {@code scorer}.
+     */
+    TopKCompletions rank(IntToDoubleFunction scorer, int maxK) {
+        return new TopKCompletions(this, scorer, maxK);
+    }
+
+    /**
+     * Walks the trie along {@code query} and returns the node it ends on, or
+     * {@link #NOT_FOUND} when no stored word continues that way.
+     */
+    int locate(String query) {
+        int node = ROOT;
+        for (int i = 0; i < query.length() && node != NOT_FOUND; i++) {
+            node = child(node, query.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Returns the largest word index present in both {@code node} of this trie and
+     * {@code otherNode} of {@code other}, or {@link #NOT_FOUND}. The posting slices are
+     * walked from their ends with a galloping search, so nothing is allocated and the
+     * newest matching word is usually found after a handful of comparisons. Indexes
+     * contained in the sorted {@code excluded} array are skipped.
+     */
+    int lastCommonIndex(int node, Trie other, int otherNode, int[] excluded) {
+        int[] a = postings;
+        int aFrom = postingStart[node];
+        int i = postingStart[node + 1] - 1;
+        int[] b = other.postings;
+        int bFrom = other.postingStart[otherNode];
+        int j = other.postingStart[otherNode + 1] - 1;
+
+        while (i >= aFrom && j >= bFrom) {
+            int x = a[i];
+            int y = b[j];
+            if (x == y) {
+                if (excluded.length == 0 || Arrays.binarySearch(excluded, x) < 0) {
+                    return x;
+                }
+                i--;
+                j--;
+                continue;
+            }
+            if (x > y) {
+                i = gallopDown(a, aFrom, i, y);
+            } else {
+                j = gallopDown(b, bFrom, j, x);
             }
+        }
+        return NOT_FOUND;
+    }
 
-            node = node.children.get(ch);
+    final int child(int node, char c) {
+        int low = childStart[node];
+        int high = childStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = labels[mid];
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
         }
-        return new HashSet<>(node.indexes); // to avoid returning the same reference
+        return NOT_FOUND;
     }
-}
 
+    void writeTo(SnapshotWriter out) throws IOException {
+        out.putInt(labels.length);
+        out.putInt(postings.length);
+        out.putInts(childStart);
+        out.putInts(postingStart);
+        out.putInts(postings);
+        out.putChars(labels);
+    }
+
+    int nodeCount() {
+        return labels.length;
+    }
+
+    int firstChild(int node) {
+        return childStart[node];
+    }
+
+    int childLimit(int node) {
+        return childStart[node + 1];
+    }
+
+    char label(int node) {
+        return labels[node];
+    }
+
+    int firstPosting(int node) {
+        return postingStart[node];
+    }
+
+    int postingLimit(int node) {
+        return postingStart[node + 1];
+    }
+
+    int postingAt(int position) {
+        return postings[position];
+    }
+
+    int postingCount(int node) {
+        return postingStart[node + 1] - postingStart[node];
+    }
+
+    private static int[] presentPositions(List<String> words) {
+        int[] positions = new int[words.size()];
+        int count = 0;
+        for (int i = 0; i < words.size(); i++) {
+            if (words.get(i) != null) {
+                positions[count++] = i;
+            }
+        }
+        return count == positions.length ? positions : Arrays.copyOf(positions, count);
+    }
+
+    /**
+     * Given {@code values[high] > target}, returns the largest position in {@code [from, high)}
+     * holding a value {@code <= target}, or {@code from - 1} if there is none.
+     */
+    private static int gallopDown(int[] values, int from, int high, int target) {
+        int upper = high;
+        int step = 1;
+        int lower = high - step;
+        while (lower >= from && values[lower] > target) {
+            upper = lower;
+            step <<= 1;
+            lower = high - step;
+        }
+
+        lower = Math.max(lower, from - 1);
+        while (upper - lower > 1) {
+            int mid = (lower + upper) >>> 1;
+            if (values[mid] <= target) {
+                lower = mid;
+            } else {
+                upper = mid;
+            }
+        }
+        return lower;
+    }
+
+    private static void sortByLabel(int[] nodes, int from, int to, char[] label) {
+        // Sibling lists are short, insertion sort beats anything fancier here
+        for (int i = from + 1; i < to; i++) {
+            int node = nodes[i];
+            int j = i - 1;
+            while (j >= from && label[nodes[j]] > label[node]) {
+                nodes[j + 1] = nodes[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+        }
+    }
+
+    /**
+     * Builds one sub-trie per distinct first character in parallel and merges them.
+     * <p>
+     * Each sub-trie is numbered breadth-first on its own, so the nodes on one of its levels are
+     * a contiguous block. The merged trie lists, level by level, the blocks of every sub-trie in
+     * character order, which is exactly its own breadth-first order. Blocks are therefore copied
+     * with a constant id and posting offset, again one task per sub-trie.
+     */
+    @SuppressWarnings("serial") // Never serialized; ForkJoinTask is only Serializable for historical reasons
+    private static final class ParallelBuild extends RecursiveTask<Trie> {
+        private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+        private final List<String> words;
+        private final int firstIndex;
+
+        private ParallelBuild(List<String> words, int firstIndex) {
+            this.words = words;
+            this.firstIndex = firstIndex;
+        }
+
+        @Override
+        protected Trie compute() {
+            int[] positions = presentPositions(words);
+            if (positions.length < SEQUENTIAL_THRESHOLD) {
+                return new Trie(words, firstIndex, positions);
+            }
+
+            // Counting sort by first character keeps the positions of every group ascending
+            int[] groupEnd = new int[Character.MAX_VALUE + 2];
+            int emptyWords = 0;
+            for (int position : positions) {
+                String word = words.get(position);
+                if (word.isEmpty()) {
+                    emptyWords++;
+                } else {
+                    groupEnd[word.charAt(0) + 1]++;
+                }
+            }
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                groupEnd[c + 1] += groupEnd[c];
+            }
+            int[] grouped = new int[positions.length - emptyWords];
+            int[] cursor = Arrays.copyOf(groupEnd, Character.MAX_VALUE + 1);
+            for (int position : positions) {
+                String word = words.get(position);
+                if (!word.isEmpty()) {
+                    grouped[cursor[word.charAt(0)]++] = position;
+                }
+            }
+
+            List<ForkJoinTask<Trie>> builds = new ArrayList<>();
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                if (groupEnd[c + 1] > groupEnd[c]) {
+                    int[] group = Arrays.copyOfRange(grouped, groupEnd[c], groupEnd[c + 1]);
+                    builds.add(ForkJoinTask.adapt(() -> new Trie(words, firstIndex, group)));
+                }
+            }
+            ForkJoinTask.invokeAll(builds);
+
+            Trie[] parts = new Trie[builds.size()];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = builds.get(i).join();
+            }
+            return merge(parts, positions);
+        }
+
+        private Trie merge(Trie[] parts, int[] positions) {
+            // levelStart[p][l] is the first id of level l in part p; level l + 1 starts where its children do
+            int depth = 0;
+            int[][] levelStart = new int[parts.length][];
+            for (int p = 0; p < parts.length; p++) {
+                int[] starts = new int[16];
+                int levels = 0;
+                int start = ROOT;
+                int end = ROOT + 1;
+                while (start < end) {
+                    if (levels + 1 == starts.length) {
+                        starts = Arrays.copyOf(starts, starts.length * 2);
+                    }
+                    starts[levels++] = start;
+                    int next = parts[p].childStart[start];
+                    end = parts[p].childStart[end];
+                    start = next;
+                }
+                starts[levels] = start;
+                levelStart[p] = Arrays.copyOf(starts, levels + 1);
+                depth = Math.max(depth, levels);
+            }
+
+            // Where every (part, level) block lands in the merged arrays; the shared root takes id 0
+            int[][] nodeTarget = new int[parts.length][depth + 2];
+            int[][] postingTarget = new int[parts.length][depth + 2];
+            int nodeCount = 1;
+            int postingCount = positions.length;
+            for (int level = 1; level <= depth + 1; level++) {
+                for (int p = 0; p < parts.length; p++) {
+                    nodeTarget[p][level] = nodeCount;
+                    postingTarget[p][level] = postingCount;
+                    if (level < levelStart[p].length - 1) {
+                        Trie part = parts[p];
+                        nodeCount += levelStart[p][level + 1] - levelStart[p][level];
+                        postingCount += part.postingStart[levelStart[p][level + 1]] - part.postingStart[levelStart[p][level]];
+                    }
+                }
+            }
+
+            int[] childStart = new int[nodeCount + 1];
+            char[] labels = new char[nodeCount];
+            int[] postingStart = new int[nodeCount + 1];
+            int[] postings = new int[postingCount];
+            childStart[ROOT] = 1;
+            childStart[nodeCount] = nodeCount;
+            postingStart[nodeCount] = postingCount;
+            for (int i = 0; i < positions.length; i++) {
+                postings[i] = firstIndex + positions[i];
+            }
+
+            List<ForkJoinTask<?>> copies = new ArrayList<>();
+            for (int p = 0; p < parts.length; p++) {
+                Trie part = parts[p];
+                int[] starts = levelStart[p];
+                int[] nodeTo = nodeTarget[p];
+                int[] postingTo = postingTarget[p];
+                copies.add(ForkJoinTask.adapt(() -> {
+                    for (int level = 1; level < starts.length - 1; level++) {
+                        int from = starts[level];
+                        int count = starts[level + 1] - from;
+                        int to = nodeTo[level];
+                        int childShift = nodeTo[level + 1] - starts[level + 1];
+                        int postingFrom = part.postingStart[from];
+                        int postingShift = postingTo[level] - postingFrom;
+
+                        System.arraycopy(part.labels, from, labels, to, count);
+                        for (int i = 0; i < count; i++) {
+                            childStart[to + i] = part.childStart[from + i] + childShift;
+                            postingStart[to + i] = part.postingStart[from + i] + postingShift;
+                        }
+                        System.arraycopy(part.postings, postingFrom, postings, postingTo[level],
+                                part.postingStart[from + count] - postingFrom);
+                    }
+                }));
+            }
+            ForkJoinTask.invokeAll(copies);
+            return new Trie(childStart, labels, postingStart, postings);
+        }
+    }
+
+    /**
+     * Growable first-child/next-sibling representation used only while the words are
+     * inserted; the constructor flattens it into the final arrays.
+     */
+    private static final class Builder {
+        private int[] firstChild = new int[16];
+        private int[] nextSibling = new int[16];
+        private char[] label = new char[16];
+        private int[] postingCount = new int[16];
+        private int size;
+
+        private Builder() {
+            newNode('\0');
+        }
+
+        private void insert(String word) {
+            int node = ROOT;
+            postingCount[node]++;
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                int child = firstChild[node];
+                while (child != NOT_FOUND && label[child] != c) {
+                    child = nextSibling[child];
+                }
+                if (child == NOT_FOUND) {
+                    child = newNode(c);
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child;
+                }
+                node = child;
+                postingCount[node]++;
+            }
+        }
+
+        private int newNode(char c) {
+            if (size == label.length) {
+                int capacity = size + (size >> 1);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                label = Arrays.copyOf(label, capacity);
+                postingCount = Arrays.copyOf(postingCount, capacity);
+            }
+            firstChild[size] = NOT_FOUND;
+            nextSibling[size] = NOT_FOUND;
+            label[size] = c;
+            return size++;
+        }
+    }
+}
@@ -1,25 +1,157 @@
 package org.example;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+/**
+ * Prefix/suffix index over a word list that can be changed while it is being queried.
+ * <p>
+ * Readers work on an immutable {@link Snapshot}: the tries built at the last compaction,
+ * a small pair of tries holding the words added since then, and the indexes removed since
+ * then. Writers build a new snapshot and publish it through a volatile field, so {@link #f}
+ * never blocks. Only the small tries are rebuilt on {@link #add}; everything is rebuilt once
+ * the pending changes exceed {@link #COMPACTION_THRESHOLD}.
+ */
 public class WordFilter {
 
-    private final Trie prefixTrie;
-    private final SuffixTrie suffixTrie;
+    static final int COMPACTION_THRESHOLD = 16_384;
+
+    private static final int[] NONE_REMOVED = new int[0];
+
+    // Every word ever added, with removed ones set to null so that indexes stay stable
+    private final List<String> words;
+    private final ForkJoinPool pool;
+    private volatile Snapshot snapshot;
 
     public WordFilter(List<String> words) {
-        this.prefixTrie = new Trie(words);
-        this.suffixTrie = new SuffixTrie(words);
+        this(words, null);
+    }
+
+    /**
+     * Builds the prefix and suffix tries, and later compactions, in parallel on {@code pool}.
+     */
+    public WordFilter(List<String> words, ForkJoinPool pool) {
+        this.words = new ArrayList<>(words);
+        this.pool = pool;
+        this.snapshot = compact();
     }
 
     public int f(String prefix, String suffix) {
-        Set<Integer> prefixMatches = prefixTrie.search(prefix);
-        Set<Integer> suffixMatches = suffixTrie.search(suffix);
+        Snapshot current = snapshot;
+        int match = current.recent().lastMatch(prefix, suffix, current.removed());
+        return match != Trie.NOT_FOUND ? match : current.base().lastMatch(prefix, suffix, current.removed());
+    }
+
+    /**
+     * Appends {@code word} and returns its index.
+     */
+    public synchronized int add(String word) {
+        addAll(List.of(word));
+        return words.size() - 1;
+    }
+
+    /**
+     * Appends {@code newWords} in order, publishing them all at once.
+     */
+    public synchronized void addAll(List<String> newWords) {
+        // Checked up front so that a null cannot leave the list half appended
+        for (String word : newWords) {
+            Objects.requireNonNull(word, "word");
+        }
+        words.addAll(newWords);
+        Snapshot current = snapshot;
+        int recentCount = words.size() - current.recentStart();
+        if (recentCount + current.removed().length > COMPACTION_THRESHOLD) {
+            snapshot = compact();
+        } else {
+            TriePair recent = new TriePair(words.subList(current.recentStart(), words.size()), current.recentStart());
+            snapshot = new Snapshot(current.base(), recent, current.recentStart(), current.removed());
+        }
+    }
+
+    /**
+     * Removes the word at {@code index}. Its index is not reused.
+     *
+     * @return {@code false} if there is no such word or it was already removed
+     */
+    public synchronized boolean remove(int index) {
+        if (index < 0 || index >= words.size() || words.get(index) == null) {
+            return false;
+        }
+        words.set(index, null);
+
+        Snapshot current = snapshot;
+        int[] removed = current.removed();
+        int position = -Arrays.binarySearch(removed, index) - 1;
+        int[] updated = new int[removed.length + 1];
+        System.arraycopy(removed, 0, updated, 0, position);
+        updated[position] = index;
+        System.arraycopy(removed, position, updated, position + 1, removed.length - position);
+
+        if (words.size() - current.recentStart() + updated.length > COMPACTION_THRESHOLD) {
+            snapshot = compact();
+        } else {
+            snapshot = new Snapshot(current.base(), current.recent(), current.recentStart(), updated);
+        }
+        return true;
+    }
+
+    /**
+     * Compacts pending changes and writes the tries to {@code path} in the format read by
+     * {@link MappedWordFilter#open(Path)}. An existing file is replaced atomically, so a
+     * {@link MappedWordFilter} already open on it is not disturbed.
+     */
+    public synchronized void save(Path path) throws IOException {
+        if (snapshot.recentStart() != words.size() || snapshot.removed().length > 0) {
+            snapshot = compact();
+        }
+        try (SnapshotWriter out = new SnapshotWriter(path)) {
+            out.putInt(SnapshotWriter.MAGIC);
+            out.putInt(SnapshotWriter.VERSION);
+            out.putInt(words.size());
+            out.putInt(0);
+            snapshot.base().prefixTrie().writeTo(out);
+            snapshot.base().suffixTrie().writeTo(out);
+            out.commit();
+        }
+    }
+
+    private Snapshot compact() {
+        TriePair base = pool == null ? new TriePair(words, 0) : TriePair.build(words, pool);
+        TriePair recent = new TriePair(List.of(), words.size());
+        return new Snapshot(base, recent, words.size(), NONE_REMOVED);
+    }
+
+    private record Snapshot(TriePair base, TriePair recent, int recentStart, int[] removed) {
+    }
+
+    private record TriePair(Trie prefixTrie, SuffixTrie suffixTrie) {
+
+        TriePair(List<String> words, int firstIndex) {
+            this(new Trie(words, firstIndex), new SuffixTrie(words, firstIndex));
+        }
+
+        static TriePair build(List<String> words, ForkJoinPool pool) {
+            ForkJoinTask<SuffixTrie> suffixTrie = pool.submit(() -> new SuffixTrie(words, 0, pool));
+            Trie prefixTrie = new Trie(words, 0, pool);
+            return new TriePair(prefixTrie, suffixTrie.join());
+        }
 
-        prefixMatches.retainAll(suffixMatches); // Find common indices
+        int lastMatch(String prefix, String suffix, int[] removed) {
+            int prefixNode = prefixTrie.locate(prefix);
+            int suffixNode = suffixTrie.locate(suffix);
+            if (prefixNode == Trie.NOT_FOUND || suffixNode == Trie.NOT_FOUND) {
+                return Trie.NOT_FOUND;
+            }
 
-        return !prefixMatches.isEmpty() ? Collections.max(prefixMatches) : -1;
+            // Both posting lists are sorted, so the largest common index is found walking them backwards
+            return prefixTrie.lastCommonIndex(prefixNode, suffixTrie, suffixNode, removed);
+        }
     }
 }
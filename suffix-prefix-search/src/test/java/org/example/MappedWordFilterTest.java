@@ -0,0 +1,106 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MappedWordFilterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testAnswersLikeTheWordFilterItWasSavedFrom() throws IOException {
+        Random random = new Random(7);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 1 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(4)));
+            }
+            words.add(word.toString());
+        }
+        WordFilter wf = new WordFilter(words);
+        Path file = dir.resolve("words.spsf");
+        wf.save(file);
+
+        try (MappedWordFilter mapped = MappedWordFilter.open(file)) {
+            assertEquals(3000, mapped.wordCount());
+            for (int q = 0; q < 1000; q++) {
+                String word = words.get(random.nextInt(words.size()));
+                String prefix = word.substring(0, random.nextInt(word.length() + 1));
+                String suffix = word.substring(random.nextInt(word.length() + 1)) + (q % 10 == 0 ? "z" : "");
+                assertEquals(wf.f(prefix, suffix), mapped.f(prefix, suffix), prefix + "/" + suffix);
+            }
+        }
+    }
+
+    @Test
+    void testSaveIncludesPendingChanges() throws IOException {
+        WordFilter wf = new WordFilter(Arrays.asList("apple", "apply", "ape"));
+        wf.add("banana");
+        wf.remove(0);
+        Path file = dir.resolve("words.spsf");
+        wf.save(file);
+
+        try (MappedWordFilter mapped = MappedWordFilter.open(file)) {
+            assertEquals(3, mapped.f("ban", "na"));
+            assertEquals(-1, mapped.f("app", "le"));
+            assertEquals(1, mapped.f("app", "ly"));
+            assertEquals(3, mapped.f("", ""));
+        }
+    }
+
+    @Test
+    void testSaveReplacesAMappedFileWithoutDisturbingIt() throws IOException {
+        Path file = dir.resolve("words.spsf");
+        new WordFilter(Arrays.asList("apple", "banana")).save(file);
+
+        try (MappedWordFilter old = MappedWordFilter.open(file)) {
+            new WordFilter(Arrays.asList("cherry", "date", "elderberry")).save(file);
+
+            assertEquals(1, old.f("ban", "na"));
+            assertEquals(2, old.wordCount());
+            try (MappedWordFilter replaced = MappedWordFilter.open(file)) {
+                assertEquals(3, replaced.wordCount());
+                assertEquals(-1, replaced.f("ban", "na"));
+                assertEquals(2, replaced.f("eld", "rry"));
+            }
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    void testSavedFileIsReadableByOtherUsers() throws IOException {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        Path file = dir.resolve("words.spsf");
+
+        new WordFilter(Arrays.asList("apple", "banana")).save(file);
+        assertEquals(PosixFilePermissions.fromString("rw-r--r--"), Files.getPosixFilePermissions(file));
+
+        // A replaced file keeps whatever the operator chose
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-rw-r--"));
+        new WordFilter(Arrays.asList("cherry")).save(file);
+        assertEquals(PosixFilePermissions.fromString("rw-rw-r--"), Files.getPosixFilePermissions(file));
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws IOException {
+        Path file = Files.writeString(dir.resolve("not-a-snapshot"), "hello world, this is text");
+        assertThrows(IllegalArgumentException.class, () -> MappedWordFilter.open(file));
+    }
+}
@@ -0,0 +1,52 @@
+package org.example;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The original trie, one {@code HashMap<Character, NodeTrie>} and one {@code HashSet<Integer>} per node, kept as the
+ * reference the flat {@link Trie} is checked and measured against. With {@code suffixes} it indexes the reversed
+ * words, like the original {@code SuffixTrie}. Removed ({@code null}) words are skipped.
+ */
+final class NodeTrie {
+    private final HashMap<Character, NodeTrie> children = new HashMap<>();
+    private final Set<Integer> indexes = new HashSet<>();
+    private final boolean suffixes;
+
+    private NodeTrie(boolean suffixes) {
+        this.suffixes = suffixes;
+    }
+
+    NodeTrie(List<String> words, boolean suffixes) {
+        this(suffixes);
+        for (int index = 0; index < words.size(); index++) {
+            String word = words.get(index);
+            if (word == null) {
+                continue;
+            }
+            indexes.add(index);
+            NodeTrie node = this;
+            for (char c : key(word).toCharArray()) {
+                node = node.children.computeIfAbsent(c, k -> new NodeTrie(suffixes));
+                node.indexes.add(index);
+            }
+        }
+    }
+
+    Set<Integer> search(String query) {
+        NodeTrie node = this;
+        for (char c : key(query).toCharArray()) {
+            node = node.children.get(c);
+            if (node == null) {
+                return new HashSet<>();
+            }
+        }
+        return new HashSet<>(node.indexes);
+    }
+
+    private String key(String word) {
+        return suffixes ? new StringBuilder(word).reverse().toString() : word;
+    }
+}
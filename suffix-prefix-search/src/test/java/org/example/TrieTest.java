@@ -0,0 +1,261 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrieTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testFlatLayoutMatchesNodeTrie() {
+        List<String> words = randomWords(20_000);
+        Trie prefixes = new Trie(words);
+        SuffixTrie suffixes = new SuffixTrie(words);
+        NodeTrie prefixNodes = new NodeTrie(words, false);
+        NodeTrie suffixNodes = new NodeTrie(words, true);
+
+        Random random = new Random(11);
+        for (int q = 0; q < 3000; q++) {
+            String word = words.get(random.nextInt(words.size()));
+            if (word == null) {
+                continue;
+            }
+            String prefix = q % 10 == 0 ? "zz" : word.substring(0, random.nextInt(word.length() + 1));
+            String suffix = word.substring(random.nextInt(word.length() + 1));
+            Set<Integer> expectedPrefix = prefixNodes.search(prefix);
+            Set<Integer> expectedSuffix = suffixNodes.search(suffix);
+            assertEquals(expectedPrefix, prefixes.search(prefix), prefix);
+            assertEquals(expectedSuffix, suffixes.search(suffix), suffix);
+
+            int prefixNode = prefixes.locate(prefix);
+            int suffixNode = suffixes.locate(suffix);
+            assertEquals(expectedPrefix.isEmpty(), prefixNode == Trie.NOT_FOUND, prefix);
+            if (prefixNode == Trie.NOT_FOUND) {
+                continue;
+            }
+            assertSortedPostings(prefixes, prefixNode, expectedPrefix);
+            assertSortedPostings(suffixes, suffixNode, expectedSuffix);
+
+            // The original f: intersect both sets and take the largest index
+            expectedPrefix.retainAll(expectedSuffix);
+            int expected = expectedPrefix.isEmpty() ? Trie.NOT_FOUND : expectedPrefix.stream().max(Integer::compare).get();
+            assertEquals(expected, prefixes.lastCommonIndex(prefixNode, suffixes, suffixNode, new int[0]), prefix + "/" + suffix);
+            if (expected != Trie.NOT_FOUND) {
+                expectedPrefix.remove(expected);
+                int next = expectedPrefix.isEmpty() ? Trie.NOT_FOUND : expectedPrefix.stream().max(Integer::compare).get();
+                assertEquals(next, prefixes.lastCommonIndex(prefixNode, suffixes, suffixNode, new int[]{expected}));
+            }
+        }
+    }
+
+    @Test
+    void testParallelBuildMatchesSequentialBuild() {
+        List<String> words = randomWords(50_000);
+        Trie sequential = new Trie(words, 10);
+        Trie parallel = new Trie(words, 10, pool);
+        SuffixTrie sequentialSuffixes = new SuffixTrie(words, 10);
+        SuffixTrie parallelSuffixes = new SuffixTrie(words, 10, pool);
+
+        assertEquals(sequential.nodeCount(), parallel.nodeCount());
+        assertEquals(sequentialSuffixes.nodeCount(), parallelSuffixes.nodeCount());
+        Random random = new Random(3);
+        for (int q = 0; q < 2000; q++) {
+            String word = words.get(random.nextInt(words.size()));
+            if (word == null) {
+                continue;
+            }
+            String prefix = word.substring(0, random.nextInt(word.length() + 1));
+            String suffix = word.substring(random.nextInt(word.length() + 1));
+            assertEquals(sequential.search(prefix), parallel.search(prefix), prefix);
+            assertEquals(sequentialSuffixes.search(suffix), parallelSuffixes.search(suffix), suffix);
+        }
+    }
+
+    @Test
+    void testParallelWordFilter() {
+        List<String> words = randomWords(40_000);
+        WordFilter sequential = new WordFilter(words);
+        WordFilter parallel = new WordFilter(words, pool);
+
+        Random random = new Random(5);
+        for (int q = 0; q < 2000; q++) {
+            String word = words.get(random.nextInt(words.size()));
+            if (word == null) {
+                continue;
+            }
+            String prefix = word.substring(0, random.nextInt(word.length() + 1));
+            String suffix = word.substring(random.nextInt(word.length() + 1));
+            assertEquals(sequential.f(prefix, suffix), parallel.f(prefix, suffix), prefix + "/" + suffix);
+        }
+    }
+
+    @Test
+    void testTopKMatchesSortingAllMatches() {
+        List<String> words = randomWords(20_000);
+        Random random = new Random(9);
+        double[] frequency = new double[words.size()];
+        for (int i = 0; i < frequency.length; i++) {
+            frequency[i] = random.nextInt(50); // Plenty of ties
+        }
+        IntToDoubleFunction scorer = index -> frequency[index];
+        Trie trie = new Trie(words);
+        TopKCompletions completions = trie.rank(scorer, 8);
+        TopKCompletions suffixCompletions = new SuffixTrie(words).rank(scorer, 8);
+
+        for (int q = 0; q < 500; q++) {
+            String word = words.get(random.nextInt(words.size()));
+            if (word == null) {
+                continue;
+            }
+            String prefix = word.substring(0, random.nextInt(Math.min(3, word.length()) + 1));
+            String suffix = word.substring(word.length() - random.nextInt(Math.min(3, word.length()) + 1));
+            for (int k : new int[]{1, 5, 8, 20}) {
+                int[] expected = bestOf(words, frequency, k, w -> w.startsWith(prefix));
+                assertArrayEquals(expected, trie.topK(prefix, k, scorer), prefix);
+                assertArrayEquals(expected, completions.topK(prefix, k), prefix);
+                assertArrayEquals(bestOf(words, frequency, k, w -> w.endsWith(suffix)), suffixCompletions.topK(suffix, k), suffix);
+            }
+        }
+        assertEquals(0, completions.topK("zzzzzzzzzz", 5).length);
+    }
+
+    @Test
+    void testFuzzySearchMatchesEditDistanceOnEveryWord() {
+        List<String> words = randomWords(5_000);
+        Trie trie = new Trie(words);
+        SuffixTrie suffixTrie = new SuffixTrie(words);
+        Random random = new Random(11);
+        for (int q = 0; q < 300; q++) {
+            StringBuilder pattern = new StringBuilder();
+            int length = random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                pattern.append((char) ('a' + random.nextInt(j == 0 ? 26 : 4)));
+            }
+            String reversed = new StringBuilder(pattern).reverse().toString();
+            for (int maxEdits = 0; maxEdits <= 2; maxEdits++) {
+                int edits = maxEdits;
+                assertEquals(indexesOf(words, w -> prefixDistance(w, pattern.toString()) <= edits),
+                        trie.fuzzySearch(pattern.toString(), edits), pattern + "~" + edits);
+                assertEquals(indexesOf(words, w -> prefixDistance(new StringBuilder(w).reverse().toString(), reversed) <= edits),
+                        suffixTrie.fuzzySearch(pattern.toString(), edits), pattern + "~" + edits);
+            }
+        }
+    }
+
+    @Test
+    void testFuzzySearchWildcards() {
+        List<String> words = randomWords(5_000);
+        Trie trie = new Trie(words);
+        SuffixTrie suffixTrie = new SuffixTrie(words);
+        for (String pattern : new String[]{"?", "a?c", "b*d", "*ab", "?*?a", "c*", "**", "x?*y"}) {
+            Pattern regex = Pattern.compile(pattern.replace("?", ".").replace("*", ".*"));
+            assertEquals(indexesOf(words, w -> regex.matcher(w).lookingAt()), trie.fuzzySearch(pattern, 0), pattern);
+            assertEquals(indexesOf(words, w -> endsWithMatch(regex, w)),
+                    suffixTrie.fuzzySearch(pattern, 0), pattern);
+        }
+        assertEquals(trie.search("ab"), trie.fuzzySearch("ab", 0));
+        assertTrue(trie.fuzzySearch("aba", 1).containsAll(trie.fuzzySearch("a?a", 0)));
+        assertThrows(IllegalArgumentException.class, () -> trie.fuzzySearch("ab", -1));
+    }
+
+    private static boolean endsWithMatch(Pattern regex, String word) {
+        for (int i = 0; i <= word.length(); i++) {
+            if (regex.matcher(word.substring(i)).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Smallest Levenshtein distance between pattern and any prefix of word
+    private static int prefixDistance(String word, String pattern) {
+        int[] row = new int[word.length() + 1];
+        int[] next = new int[word.length() + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = i;
+        }
+        for (int j = 1; j <= pattern.length(); j++) {
+            next[0] = j;
+            for (int i = 1; i <= word.length(); i++) {
+                int cost = word.charAt(i - 1) == pattern.charAt(j - 1) ? 0 : 1;
+                next[i] = Math.min(row[i - 1] + cost, Math.min(row[i], next[i - 1]) + 1);
+            }
+            int[] swap = row;
+            row = next;
+            next = swap;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int distance : row) {
+            best = Math.min(best, distance);
+        }
+        return best;
+    }
+
+    private static Set<Integer> indexesOf(List<String> words, Predicate<String> matches) {
+        Set<Integer> indexes = new HashSet<>();
+        for (int i = 0; i < words.size(); i++) {
+            if (words.get(i) != null && matches.test(words.get(i))) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+
+    private static int[] bestOf(List<String> words, double[] frequency, int k, Predicate<String> matches) {
+        List<Integer> matching = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            if (words.get(i) != null && matches.test(words.get(i))) {
+                matching.add(i);
+            }
+        }
+        matching.sort(Comparator.<Integer>comparingDouble(i -> frequency[i]).thenComparingInt(i -> i).reversed());
+        return matching.stream().limit(k).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void assertSortedPostings(Trie trie, int node, Set<Integer> expected) {
+        List<Integer> postings = new ArrayList<>();
+        for (int i = trie.firstPosting(node); i < trie.postingLimit(node); i++) {
+            postings.add(trie.postingAt(i));
+        }
+        assertEquals(expected.stream().sorted().toList(), postings);
+    }
+
+    private static List<String> randomWords(int count) {
+        Random random = new Random(42);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(100);
+            if (kind == 0) {
+                words.add("");
+            } else if (kind == 1) {
+                words.add(null); // A removed word
+            } else {
+                StringBuilder word = new StringBuilder();
+                int length = 1 + random.nextInt(8);
+                for (int j = 0; j < length; j++) {
+                    word.append((char) ('a' + random.nextInt(j == 0 ? 26 : 4)));
+                }
+                words.add(word.toString());
+            }
+        }
+        return words;
+    }
+}
\ No newline at end of file
@@ -1,7 +1,12 @@
 package org.example;
 
 import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import static org.junit.jupiter.api.Assertions.*;
 
 class WordFilterTest {
@@ -34,5 +39,118 @@ class WordFilterTest {
         assertEquals(3, wf.f("", "na")); // Should match "banana"
         assertEquals(2, wf.f("ap", "")); // Should match "ape"
     }
-}
 
+    @Test
+    void testMatchesBruteForceOnRandomWords() {
+        Random random = new Random(42);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(3)));
+            }
+            words.add(word.toString());
+        }
+        WordFilter wf = new WordFilter(words);
+
+        for (int q = 0; q < 500; q++) {
+            String word = words.get(random.nextInt(words.size()));
+            String prefix = word.substring(0, random.nextInt(word.length() + 1));
+            String other = words.get(random.nextInt(words.size()));
+            String suffix = other.substring(random.nextInt(other.length() + 1));
+
+            int expected = -1;
+            for (int i = words.size() - 1; i >= 0; i--) {
+                if (words.get(i).startsWith(prefix) && words.get(i).endsWith(suffix)) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, wf.f(prefix, suffix), prefix + "/" + suffix);
+        }
+    }
+
+    @Test
+    void testAddAndRemove() {
+        WordFilter wf = new WordFilter(Arrays.asList("apple", "apply", "ape", "banana"));
+
+        assertEquals(4, wf.add("apple"));
+        assertEquals(4, wf.f("app", "le"));
+        assertEquals(4, wf.f("", ""));
+
+        assertTrue(wf.remove(4));
+        assertFalse(wf.remove(4));
+        assertEquals(0, wf.f("app", "le")); // Falls back to the original "apple"
+
+        assertTrue(wf.remove(0));
+        assertEquals(-1, wf.f("app", "le"));
+        assertEquals(3, wf.f("", ""));
+        assertFalse(wf.remove(42));
+    }
+
+    @Test
+    void testAddAllWithNullAddsNothing() {
+        WordFilter wf = new WordFilter(Arrays.asList("apple", "banana"));
+
+        assertThrows(NullPointerException.class, () -> wf.addAll(Arrays.asList("cherry", null, "date")));
+        assertEquals(-1, wf.f("cher", ""));
+        assertEquals(2, wf.add("elder"));
+    }
+
+    @Test
+    void testChangesSurviveCompaction() {
+        WordFilter wf = new WordFilter(Arrays.asList("apple", "banana"));
+        wf.remove(1);
+        List<String> batch = new ArrayList<>();
+        for (int i = 0; i < WordFilter.COMPACTION_THRESHOLD; i++) {
+            batch.add("word" + i);
+        }
+        wf.addAll(batch);
+
+        assertEquals(0, wf.f("app", ""));
+        assertEquals(-1, wf.f("ban", ""));
+        assertEquals(WordFilter.COMPACTION_THRESHOLD + 1, wf.f("word", ""));
+        assertEquals(WordFilter.COMPACTION_THRESHOLD + 2, wf.add("banana"));
+        assertEquals(WordFilter.COMPACTION_THRESHOLD + 2, wf.f("ban", "na"));
+    }
+
+    @Test
+    void testReadersSeeConsistentResultsWhileWriting() throws InterruptedException {
+        List<String> words = new ArrayList<>(List.of("banana"));
+        for (int i = 0; i < 1000; i++) {
+            words.add("old" + i);
+        }
+        WordFilter wf = new WordFilter(words);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            int lastOld = Integer.MAX_VALUE;
+            int lastNew = -1;
+            while (!done.get()) {
+                int old = wf.f("old", "");
+                int added = wf.f("new", "");
+                if (wf.f("ban", "na") != 0) {
+                    failure.set("banana disappeared");
+                }
+                if (old > lastOld || added < lastNew) {
+                    failure.set("went back in time");
+                }
+                lastOld = old;
+                lastNew = added;
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 1000; i++) {
+            wf.add("new" + i);
+            wf.remove(1000 - i);
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(-1, wf.f("old", ""));
+        assertEquals(2000, wf.f("new", ""));
+    }
+}